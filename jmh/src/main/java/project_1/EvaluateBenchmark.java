@@ -0,0 +1,53 @@
+package project_1;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import project_1.Expression.Token;
+
+/**
+ * JMH benchmarks of evaluation: evaluatePostfix and evaluateExpression, on
+ * postfix lists and trees built before the measurement.
+ * One operation is a pass over every expression of the workload.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EvaluateBenchmark {
+
+    /**
+     * Evaluates the postfix form of every expression of the workload.
+     *
+     * @param state The workload.
+     * @return Sum of the values.
+     */
+    @Benchmark
+    public long evaluatePostfix(WorkloadState state) {
+        long s = 0;
+        for (List<Token> post : state.w.postfix) s += Expression.evaluatePostfix(post);
+        return s;
+    }
+
+    /**
+     * Evaluates the tree of every expression of the workload.
+     *
+     * @param state The workload.
+     * @return Sum of the values.
+     */
+    @Benchmark
+    public long evaluateExpression(WorkloadState state) {
+        long s = 0;
+        for (Expression tree : state.w.trees) s += Expression.evaluateExpression(tree);
+        return s;
+    }
+}
@@ -0,0 +1,36 @@
+package project_1;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmark jar: the JMH command line, with the GC profiler
+ * (-prof gc) always enabled so that every run reports gc.alloc.rate.norm.
+ *
+ * Usage: java -jar target/benchmarks.jar [JMH options]
+ */
+public class JmhMain {
+
+    /**
+     * Runs the benchmarks selected by the JMH options.
+     *
+     * @param args JMH command-line options, e.g. a benchmark regex or -p workload=nested.
+     * @throws CommandLineOptionException If the options cannot be parsed.
+     * @throws IOException If the help cannot be printed.
+     * @throws RunnerException If a benchmark fails.
+     */
+    public static void main(String[] args) throws CommandLineOptionException, IOException, RunnerException {
+        CommandLineOptions options = new CommandLineOptions(args);
+        if (options.shouldHelp()) {
+            options.showHelp();
+            return;
+        }
+        new Runner(new OptionsBuilder().parent(options).addProfiler(GCProfiler.class).build()).run();
+    }
+}
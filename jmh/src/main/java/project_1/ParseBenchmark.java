@@ -0,0 +1,68 @@
+package project_1;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import project_1.Expression.Token;
+
+/**
+ * JMH benchmarks of parsing: getToken, infixToPostfix and infixToExpression.
+ * One operation is a pass over every expression of the workload, so times and
+ * gc.alloc.rate.norm are per workload; divide by its size for per-expression figures.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+
+    /**
+     * Looks up the token of every word of the workload.
+     *
+     * @param state The workload.
+     * @return Sum of the priorities, so that the lookups are not optimized away.
+     */
+    @Benchmark
+    public long getToken(WorkloadState state) {
+        long s = 0;
+        for (String[] line : state.w.words) {
+            for (String word : line) s += Expression.getToken(word).priority;
+        }
+        return s;
+    }
+
+    /**
+     * Converts every expression of the workload to postfix.
+     *
+     * @param state The workload.
+     * @return Total length of the postfix lists.
+     */
+    @Benchmark
+    public long infixToPostfix(WorkloadState state) {
+        long s = 0;
+        for (List<Token> in : state.w.infix) s += Expression.infixToPostfix(in).size();
+        return s;
+    }
+
+    /**
+     * Builds the tree of every expression of the workload.
+     *
+     * @param state The workload.
+     * @return Sum of the priorities of the roots.
+     */
+    @Benchmark
+    public long infixToExpression(WorkloadState state) {
+        long s = 0;
+        for (List<Token> in : state.w.infix) s += Expression.infixToExpression(in).element.priority;
+        return s;
+    }
+}
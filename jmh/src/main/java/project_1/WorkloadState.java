@@ -0,0 +1,38 @@
+package project_1;
+
+import java.io.FileNotFoundException;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * JMH state holding one workload of {@link ExpressionBenchmark}, prepared in
+ * every form the benchmarks need before the measurement starts.
+ */
+@State(Scope.Benchmark)
+public class WorkloadState {
+
+    /** Testcase file giving the seed expressions and the operator mix, relative to the working directory. */
+    @Param("project_1/p1-testcases.txt")
+    public String file;
+
+    /** Name of the workload, as in ExpressionBenchmark. */
+    @Param({"testcases", "small", "medium", "large", "nested", "powers"})
+    public String workload;
+
+    ExpressionBenchmark.Workload w;
+
+    /**
+     * Builds only the workload named by the parameters.
+     *
+     * @throws FileNotFoundException If the testcase file is not found.
+     * @throws IllegalArgumentException If there is no workload with that name.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws FileNotFoundException {
+        w = ExpressionBenchmark.workload(workload, ExpressionBenchmark.validLines(file));
+    }
+}
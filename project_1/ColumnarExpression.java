@@ -0,0 +1,389 @@
+package project_1;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import project_1.Expression.Token;
+import project_1.Expression.TokenType;
+
+/**
+ * One expression compiled for columnar evaluation over many rows.
+ * Each variable of the expression is bound to a long[] column, and the expression
+ * is evaluated node by node across a block of rows at a time: every operator is
+ * one simple loop over arrays, which the JIT can unroll and vectorize.
+ * Intermediate results live in a few reusable registers of one block each.
+ * Constant subtrees are folded when the expression is compiled.
+ * A compiled expression owns its registers, so one instance must not be
+ * evaluated by several threads at the same time.
+ */
+public class ColumnarExpression {
+
+    /** Number of rows evaluated at a time, so that the registers stay in cache. */
+    static final int BLOCK = 1024;
+
+    /** Kinds of operands of an instruction. */
+    static final int CONSTANT = 0, COLUMN = 1, REGISTER = 2;
+
+    private static final TokenType[] TYPES = TokenType.values();
+
+    final String[] variables;
+    // one entry per instruction, in evaluation order; the last one is the result
+    final int[] op, leftKind, leftIndex, rightKind, rightIndex, dest;
+    final long[] constants;
+    final long[][] registers;
+    // where the value of the whole expression comes from
+    final int resultKind, resultIndex;
+
+    /**
+     * Helper to allocate registers and collect instructions while compiling.
+     */
+    private static class Builder {
+
+        final String[] variables;
+        final List<int[]> code = new ArrayList<>();
+        final List<Long> constants = new ArrayList<>();
+        final List<Boolean> busy = new ArrayList<>();
+
+        /**
+         * Creates a builder for the given column names.
+         *
+         * @param variables The names of the columns.
+         */
+        Builder(String[] variables) {
+            this.variables = variables;
+        }
+
+        /**
+         * Compiles a subtree and returns where its value is found.
+         *
+         * @param tree The subtree to compile.
+         * @return The kind and index of the operand holding the value of the subtree.
+         */
+        int[] compile(Expression tree) {
+            if (tree.left == null && tree.right == null) {
+                if (tree.element.token == TokenType.VARIABLE) {
+                    return new int[] {COLUMN, column(tree.element.string)};
+                }
+                return constant(tree.element.getValue());
+            }
+            int[] left = compile(tree.left);
+            int[] right = compile(tree.right);
+            if (left[0] == CONSTANT && right[0] == CONSTANT) {
+                return constant(Expression.Evaluator.apply(
+                    tree.element.token, constants.get(left[1]), constants.get(right[1])
+                ));
+            }
+            free(left);
+            free(right);
+            int register = busy.indexOf(false);
+            if (register < 0) {
+                register = busy.size();
+                busy.add(true);
+            } else {
+                busy.set(register, true);
+            }
+            code.add(new int[] {tree.element.token.ordinal(), left[0], left[1], right[0], right[1], register});
+            return new int[] {REGISTER, register};
+        }
+
+        /**
+         * Adds a constant to the pool.
+         *
+         * @param value The constant.
+         * @return The operand of the constant.
+         */
+        int[] constant(long value) {
+            constants.add(value);
+            return new int[] {CONSTANT, constants.size() - 1};
+        }
+
+        /**
+         * Releases the register of an operand once it has been read.
+         *
+         * @param operand The operand.
+         */
+        void free(int[] operand) {
+            if (operand[0] == REGISTER) busy.set(operand[1], false);
+        }
+
+        /**
+         * Finds the column of a variable.
+         *
+         * @param name The name of the variable.
+         * @return The index of its column.
+         * @throws IllegalArgumentException If no column has that name.
+         */
+        int column(String name) {
+            for (int i = 0; i < variables.length; i++) {
+                if (variables[i].equals(name)) return i;
+            }
+            throw new IllegalArgumentException("No column for variable: " + name);
+        }
+    }
+
+    /**
+     * Creates a compiled expression from the output of a Builder.
+     *
+     * @param builder The builder holding the compiled code.
+     * @param result The operand holding the value of the expression.
+     */
+    private ColumnarExpression(Builder builder, int[] result) {
+        int n = builder.code.size();
+        variables = builder.variables;
+        op = new int[n];
+        leftKind = new int[n];
+        leftIndex = new int[n];
+        rightKind = new int[n];
+        rightIndex = new int[n];
+        dest = new int[n];
+        for (int i = 0; i < n; i++) {
+            int[] c = builder.code.get(i);
+            op[i] = c[0];
+            leftKind[i] = c[1];
+            leftIndex[i] = c[2];
+            rightKind[i] = c[3];
+            rightIndex[i] = c[4];
+            dest[i] = c[5];
+        }
+        constants = new long[builder.constants.size()];
+        for (int i = 0; i < constants.length; i++) {
+            constants[i] = builder.constants.get(i);
+        }
+        registers = new long[builder.busy.size()][BLOCK];
+        resultKind = result[0];
+        resultIndex = result[1];
+    }
+
+    /**
+     * Compiles an expression for columnar evaluation.
+     *
+     * @param tree The expression tree.
+     * @param variables The names of the variables, in the order of the columns.
+     * @return The compiled expression.
+     * @throws IllegalArgumentException If the expression uses a variable not in variables.
+     * @throws ArithmeticException If a constant subtree cannot be evaluated.
+     */
+    public static ColumnarExpression compile(Expression tree, String... variables) {
+        Builder builder = new Builder(variables);
+        int[] result = builder.compile(tree);
+        return new ColumnarExpression(builder, result);
+    }
+
+    /**
+     * Evaluates the expression for every row.
+     *
+     * @param columns One array per variable, in the order given to compile.
+     * @param result Receives the value of each row; its length is the number of rows.
+     */
+    public void evaluate(long[][] columns, long[] result) {
+        int rows = result.length;
+        for (int start = 0; start < rows; start += BLOCK) {
+            int len = Math.min(BLOCK, rows - start);
+            for (int i = 0; i < op.length; i++) {
+                long[] d = registers[dest[i]];
+                if (rightKind[i] == CONSTANT) {
+                    apply(op[i], array(leftKind[i], leftIndex[i], columns), offset(leftKind[i], start),
+                        constants[rightIndex[i]], d, len);
+                } else if (leftKind[i] == CONSTANT) {
+                    apply(op[i], constants[leftIndex[i]],
+                        array(rightKind[i], rightIndex[i], columns), offset(rightKind[i], start), d, len);
+                } else {
+                    apply(op[i], array(leftKind[i], leftIndex[i], columns), offset(leftKind[i], start),
+                        array(rightKind[i], rightIndex[i], columns), offset(rightKind[i], start), d, len);
+                }
+            }
+            if (resultKind == CONSTANT) {
+                Arrays.fill(result, start, start + len, constants[resultIndex]);
+            } else {
+                System.arraycopy(array(resultKind, resultIndex, columns), offset(resultKind, start),
+                    result, start, len);
+            }
+        }
+    }
+
+    /**
+     * Returns the array holding an operand.
+     *
+     * @param kind The kind of the operand, COLUMN or REGISTER.
+     * @param index The index of the column or register.
+     * @param columns The columns.
+     * @return The array of the operand.
+     */
+    private long[] array(int kind, int index, long[][] columns) {
+        return kind == COLUMN ? columns[index] : registers[index];
+    }
+
+    /**
+     * Returns the position of the current block in an operand array.
+     *
+     * @param kind The kind of the operand, COLUMN or REGISTER.
+     * @param start The first row of the block.
+     * @return start for a column, 0 for a register.
+     */
+    private static int offset(int kind, int start) {
+        return kind == COLUMN ? start : 0;
+    }
+
+    /**
+     * Applies an operator to two arrays of operands.
+     *
+     * @param op The ordinal of the operator.
+     * @param a The left operands.
+     * @param ao The position of the first left operand.
+     * @param b The right operands.
+     * @param bo The position of the first right operand.
+     * @param d Receives the results.
+     * @param len The number of rows.
+     */
+    private static void apply(int op, long[] a, int ao, long[] b, int bo, long[] d, int len) {
+        switch (TYPES[op]) {
+            case PLUS:
+                for (int i = 0; i < len; i++) d[i] = a[ao + i] + b[bo + i];
+                break;
+            case TIMES:
+                for (int i = 0; i < len; i++) d[i] = a[ao + i] * b[bo + i];
+                break;
+            case MINUS:
+                for (int i = 0; i < len; i++) d[i] = a[ao + i] - b[bo + i];
+                break;
+            case DIV:
+                for (int i = 0; i < len; i++) d[i] = a[ao + i] / b[bo + i];
+                break;
+            case MOD:
+                for (int i = 0; i < len; i++) d[i] = a[ao + i] % b[bo + i];
+                break;
+            default:
+                for (int i = 0; i < len; i++) d[i] = IntegerPower.pow(a[ao + i], b[bo + i]);
+                break;
+        }
+    }
+
+    /**
+     * Applies an operator to an array of left operands and a constant right operand.
+     *
+     * @param op The ordinal of the operator.
+     * @param a The left operands.
+     * @param ao The position of the first left operand.
+     * @param c The right operand.
+     * @param d Receives the results.
+     * @param len The number of rows.
+     */
+    private static void apply(int op, long[] a, int ao, long c, long[] d, int len) {
+        switch (TYPES[op]) {
+            case PLUS:
+                for (int i = 0; i < len; i++) d[i] = a[ao + i] + c;
+                break;
+            case TIMES:
+                for (int i = 0; i < len; i++) d[i] = a[ao + i] * c;
+                break;
+            case MINUS:
+                for (int i = 0; i < len; i++) d[i] = a[ao + i] - c;
+                break;
+            case DIV:
+                for (int i = 0; i < len; i++) d[i] = a[ao + i] / c;
+                break;
+            case MOD:
+                for (int i = 0; i < len; i++) d[i] = a[ao + i] % c;
+                break;
+            default:
+                for (int i = 0; i < len; i++) d[i] = IntegerPower.pow(a[ao + i], c);
+                break;
+        }
+    }
+
+    /**
+     * Applies an operator to a constant left operand and an array of right operands.
+     *
+     * @param op The ordinal of the operator.
+     * @param c The left operand.
+     * @param b The right operands.
+     * @param bo The position of the first right operand.
+     * @param d Receives the results.
+     * @param len The number of rows.
+     */
+    private static void apply(int op, long c, long[] b, int bo, long[] d, int len) {
+        switch (TYPES[op]) {
+            case PLUS:
+                for (int i = 0; i < len; i++) d[i] = c + b[bo + i];
+                break;
+            case TIMES:
+                for (int i = 0; i < len; i++) d[i] = c * b[bo + i];
+                break;
+            case MINUS:
+                for (int i = 0; i < len; i++) d[i] = c - b[bo + i];
+                break;
+            case DIV:
+                for (int i = 0; i < len; i++) d[i] = c / b[bo + i];
+                break;
+            case MOD:
+                for (int i = 0; i < len; i++) d[i] = c % b[bo + i];
+                break;
+            default:
+                for (int i = 0; i < len; i++) d[i] = IntegerPower.pow(c, b[bo + i]);
+                break;
+        }
+    }
+
+    /**
+     * Benchmark: evaluates a formula over random columns, columnar and one row at a time.
+     * The per-row baseline substitutes the values of the row into the tokens, parses
+     * them and calls evaluateExpression, as is done today for each input line.
+     *
+     * @param args Optional formula and number of rows.
+     */
+    public static void main(String[] args) {
+        String formula = args.length > 0 ? args[0] : "( a * 3 + b ) % 7 - c ^ 2 + a * b";
+        int rows = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+
+        List<Token> infix = new ArrayList<>();
+        ExpressionTokenizer in = new ExpressionTokenizer(new StringReader(formula));
+        in.nextLine(infix);
+        Expression tree = Expression.infixToExpression(infix);
+        List<String> variables = new ArrayList<>();
+        int[] columnOf = new int[infix.size()]; // column of each variable token
+        for (int i = 0; i < infix.size(); i++) {
+            Token t = infix.get(i);
+            if (t.token != TokenType.VARIABLE) continue;
+            if (!variables.contains(t.string)) variables.add(t.string);
+            columnOf[i] = variables.indexOf(t.string);
+        }
+        String[] names = variables.toArray(new String[0]);
+        ColumnarExpression program = compile(tree, names);
+
+        Random random = new Random(1);
+        long[][] columns = new long[names.length][rows];
+        for (long[] column : columns) {
+            for (int i = 0; i < rows; i++) column[i] = random.nextInt(2001) - 1000;
+        }
+        long[] result = new long[rows];
+
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            program.evaluate(columns, result);
+            long columnarTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            int mismatches = 0;
+            List<Token> row = new ArrayList<>();
+            for (int r = 0; r < rows; r++) {
+                row.clear();
+                for (int i = 0; i < infix.size(); i++) {
+                    Token t = infix.get(i);
+                    if (t.token == TokenType.VARIABLE) {
+                        row.add(Expression.getToken(Long.toString(columns[columnOf[i]][r])));
+                    } else {
+                        row.add(t);
+                    }
+                }
+                if (Expression.evaluateExpression(Expression.infixToExpression(row)) != result[r]) mismatches++;
+            }
+            long rowTime = System.nanoTime() - start;
+
+            System.out.printf("Rows: %d Columnar: %.2f ns/row Per-row parse+evaluate: %.2f ns/row Speedup: %.0fx Mismatches: %d%n",
+                rows, (double) columnarTime / rows, (double) rowTime / rows, (double) rowTime / columnarTime, mismatches);
+        }
+    }
+}
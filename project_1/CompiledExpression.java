@@ -0,0 +1,273 @@
+package project_1;
+
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import project_1.Expression.Token;
+
+/**
+ * Flat, reusable program compiled from an expression tree or a postfix token list.
+ * The program is an int opcode array and a long constant pool, and it is run by a
+ * single loop over a preallocated long stack, so evaluating it does not allocate
+ * and does not follow any tree pointers.
+ * A compiled program owns its stack, so one instance must not be evaluated by
+ * several threads at the same time.
+ */
+public class CompiledExpression {
+
+    /** Opcode that pushes the constant whose pool index follows it. */
+    static final int PUSH = 0;
+    static final int ADD = 1;
+    static final int MUL = 2;
+    static final int SUB = 3;
+    static final int DIV = 4;
+    static final int MOD = 5;
+    static final int POW = 6;
+
+    final int[] code;
+    final long[] constants;
+    final long[] stack;
+
+    /**
+     * Creates a program from its opcodes and constant pool.
+     *
+     * @param code The opcodes, PUSH being followed by its constant pool index.
+     * @param constants The constant pool.
+     * @param maxDepth The largest stack depth reached by the program.
+     */
+    private CompiledExpression(int[] code, long[] constants, int maxDepth) {
+        this.code = code;
+        this.constants = constants;
+        this.stack = new long[maxDepth];
+    }
+
+    /**
+     * Helper to collect opcodes and constants while compiling.
+     */
+    private static class Builder {
+
+        int[] code = new int[16];
+        long[] constants = new long[8];
+        int codeSize, constantCount, depth, maxDepth;
+
+        /**
+         * Appends an opcode to the program.
+         *
+         * @param op The opcode to append.
+         */
+        void emit(int op) {
+            if (codeSize == code.length) {
+                code = Arrays.copyOf(code, 2 * code.length);
+            }
+            code[codeSize++] = op;
+        }
+
+        /**
+         * Appends a PUSH of the given constant.
+         *
+         * @param value The constant to push.
+         */
+        void push(long value) {
+            if (constantCount == constants.length) {
+                constants = Arrays.copyOf(constants, 2 * constants.length);
+            }
+            constants[constantCount] = value;
+            emit(PUSH);
+            emit(constantCount++);
+            maxDepth = Math.max(maxDepth, ++depth);
+        }
+
+        /**
+         * Appends a binary operator, which pops two values and pushes one.
+         *
+         * @param token The operator token.
+         * @throws IllegalArgumentException If fewer than two values are on the stack.
+         */
+        void operator(Token token) {
+            if (depth < 2) throw new IllegalArgumentException("Missing operand for " + token);
+            emit(opcode(token));
+            depth--;
+        }
+
+        /**
+         * Creates the compiled program from the collected code.
+         *
+         * @return The compiled program.
+         * @throws IllegalArgumentException If the program does not leave exactly one value.
+         */
+        CompiledExpression build() {
+            if (codeSize == 0) throw new IllegalArgumentException("Empty program");
+            if (depth != 1) throw new IllegalArgumentException("Unbalanced program: " + depth + " values left");
+            return new CompiledExpression(
+                Arrays.copyOf(code, codeSize),
+                Arrays.copyOf(constants, constantCount),
+                maxDepth
+            );
+        }
+    }
+
+    /**
+     * Maps an operator token to its opcode.
+     *
+     * @param token The operator token.
+     * @return The opcode of the operator.
+     */
+    static int opcode(Token token) {
+        return switch (token.token) {
+            case PLUS -> ADD;
+            case TIMES -> MUL;
+            case MINUS -> SUB;
+            case DIV -> DIV;
+            case MOD -> MOD;
+            case POWER -> POW;
+            default -> throw new IllegalArgumentException("Not an operator: " + token);
+        };
+    }
+
+    /**
+     * Compiles an expression tree into a flat program, emitting its nodes in postfix
+     * order with an explicit stack, so trees of any depth can be compiled.
+     *
+     * @param tree The expression tree to compile.
+     * @return The compiled program.
+     */
+    public static CompiledExpression compile(Expression tree) {
+        Builder builder = new Builder();
+        Expression.TraversalStack stack = new Expression.TraversalStack();
+        stack.push(tree, Expression.BEFORE_LEFT);
+        while (stack.top > 0) {
+            int i = stack.top - 1;
+            Expression node = stack.nodes[i];
+            if (node.left == null && node.right == null) {
+                builder.push(node.element.getValue());
+                stack.top--;
+            } else if (stack.state[i] == Expression.BEFORE_LEFT) {
+                stack.state[i] = Expression.BEFORE_RIGHT;
+                stack.push(node.left, Expression.BEFORE_LEFT);
+            } else if (stack.state[i] == Expression.BEFORE_RIGHT) {
+                stack.state[i] = Expression.AFTER_RIGHT;
+                stack.push(node.right, Expression.BEFORE_LEFT);
+            } else {
+                builder.operator(node.element);
+                stack.top--;
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Compiles a postfix expression into a flat program.
+     *
+     * @param postfix The list of tokens representing the postfix expression.
+     * @return The compiled program.
+     * @throws IllegalArgumentException If the list is empty or is not a well-formed postfix expression.
+     */
+    public static CompiledExpression compile(List<Token> postfix) {
+        Builder builder = new Builder();
+        for (Token token : postfix) {
+            if (token.isOperand()) {
+                builder.push(token.getValue());
+            } else {
+                builder.operator(token);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Runs the program and returns its value.
+     *
+     * @return The evaluated result of the expression.
+     */
+    public long evaluate() {
+        final int[] code = this.code;
+        final long[] constants = this.constants;
+        final long[] stack = this.stack;
+        int sp = 0;
+        int pc = 0;
+        while (pc < code.length) {
+            int op = code[pc++];
+            if (op == PUSH) {
+                stack[sp++] = constants[code[pc++]];
+                continue;
+            }
+            long right = stack[--sp];
+            long left = stack[sp - 1];
+            switch (op) {
+                case ADD:
+                    stack[sp - 1] = left + right;
+                    break;
+                case MUL:
+                    stack[sp - 1] = left * right;
+                    break;
+                case SUB:
+                    stack[sp - 1] = left - right;
+                    break;
+                case DIV:
+                    stack[sp - 1] = left / right;
+                    break;
+                case MOD:
+                    stack[sp - 1] = left % right;
+                    break;
+                default:
+                    stack[sp - 1] = IntegerPower.pow(left, right);
+                    break;
+            }
+        }
+        return stack[0];
+    }
+
+    /**
+     * Benchmark mode: for every expression of the input, reports the average time of
+     * evaluatePostfix, evaluateExpression and the compiled program.
+     *
+     * @param args Input file, optionally followed by the number of timed repetitions.
+     * @throws FileNotFoundException If the input file is not found.
+     */
+    public static void main(String[] args) throws FileNotFoundException {
+        ExpressionTokenizer in = new ExpressionTokenizer(
+            args.length > 0 ? new FileReader(args[0]) : new InputStreamReader(System.in)
+        );
+        int reps = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+
+        int count = 0;
+        List<Token> infix = new ArrayList<>();
+        while (in.nextLine(infix)) {
+            if (infix.isEmpty()) continue;
+
+            count++;
+            Expression exp = Expression.infixToExpression(infix);
+            List<Token> post = Expression.infixToPostfix(infix);
+            CompiledExpression program = compile(exp);
+
+            long sink = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < reps; i++) sink += Expression.evaluatePostfix(post);
+            long postfixTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < reps; i++) sink += Expression.evaluateExpression(exp);
+            long treeTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < reps; i++) sink += program.evaluate();
+            long compiledTime = System.nanoTime() - start;
+
+            System.out.println("Expression number: " + count + " Value: " + program.evaluate());
+            System.out.printf(
+                "Postfix: %.1f ns Tree: %.1f ns Compiled: %.1f ns Speedup: %.1fx / %.1fx (%d)%n%n",
+                (double) postfixTime / reps,
+                (double) treeTime / reps,
+                (double) compiledTime / reps,
+                (double) postfixTime / compiledTime,
+                (double) treeTime / compiledTime,
+                sink & 1
+            );
+        }
+        in.close();
+    }
+}
@@ -0,0 +1,106 @@
+package project_1;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import project_1.Expression.Token;
+
+/**
+ * Benchmark of the recursive and iterative tree traversals of Expression on
+ * machine-generated chains of operators, which build trees as deep as they are long.
+ * A left-deep chain is built from "2 ^ 1 ^ 1 ^ ...", since all operators are left
+ * associative, and a right-deep chain from "1 - ( 1 - ( 1 - ... ) )".
+ *
+ * Usage: java -Xss1m project_1.DeepExpressionBenchmark [maxDepth]
+ */
+public class DeepExpressionBenchmark {
+
+    /**
+     * Builds the tokens of a left-deep chain of POWER operators.
+     *
+     * @param depth Number of operators in the chain.
+     * @return The infix tokens.
+     */
+    static List<Token> leftChain(int depth) {
+        List<Token> infix = new ArrayList<>();
+        infix.add(new Token(2));
+        for (int i = 0; i < depth; i++) {
+            infix.add(Expression.getToken('^'));
+            infix.add(new Token(1));
+        }
+        return infix;
+    }
+
+    /**
+     * Builds the tokens of a right-deep chain of MINUS operators.
+     *
+     * @param depth Number of operators in the chain.
+     * @return The infix tokens.
+     */
+    static List<Token> rightChain(int depth) {
+        List<Token> infix = new ArrayList<>();
+        for (int i = 0; i < depth; i++) {
+            infix.add(new Token(1));
+            infix.add(Expression.getToken('-'));
+            infix.add(Expression.getToken('('));
+        }
+        infix.add(new Token(1));
+        for (int i = 0; i < depth; i++) {
+            infix.add(Expression.getToken(')'));
+        }
+        return infix;
+    }
+
+    /**
+     * Recursive postfix printer, the baseline for {@link Expression#toPostfixString}.
+     *
+     * @param tree The subtree to print.
+     * @param out The output being built.
+     */
+    static void printPostfix(Expression tree, StringBuilder out) {
+        if (tree.left != null) {
+            printPostfix(tree.left, out);
+            printPostfix(tree.right, out);
+        }
+        if (out.length() > 0) out.append(' ');
+        out.append(tree.element);
+    }
+
+    /**
+     * Times one traversal, reporting a stack overflow instead of a time.
+     *
+     * @param name Name of the traversal.
+     * @param run The traversal to time.
+     */
+    static void time(String name, Runnable run) {
+        long start = System.nanoTime();
+        try {
+            run.run();
+            System.out.printf("  %-20s %10.3f ms%n", name, (System.nanoTime() - start) / 1e6);
+        } catch (StackOverflowError e) {
+            System.out.printf("  %-20s %13s%n", name, "StackOverflowError");
+        }
+    }
+
+    /**
+     * Runs the benchmark for depths 10^3 up to maxDepth.
+     *
+     * @param args Optional maximum depth, 10^6 by default.
+     */
+    public static void main(String[] args) {
+        int maxDepth = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        for (int depth = 1000; depth <= maxDepth; depth *= 10) {
+            for (int shape = 0; shape < 2; shape++) {
+                List<Token> infix = shape == 0 ? leftChain(depth) : rightChain(depth);
+                Expression tree = Expression.infixToExpression(infix);
+                System.out.println((shape == 0 ? "Left" : "Right") + "-deep chain, depth " + depth
+                    + ", value " + Expression.evaluateIterative(tree));
+                time("evaluateExpression", () -> Expression.evaluateExpression(tree));
+                time("evaluateIterative", () -> Expression.evaluateIterative(tree));
+                time("recursive postfix", () -> printPostfix(tree, new StringBuilder()));
+                time("toPostfixString", () -> Expression.toPostfixString(tree));
+                time("toInfixString", () -> Expression.toInfixString(tree));
+            }
+        }
+    }
+}
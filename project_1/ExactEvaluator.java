@@ -0,0 +1,160 @@
+package project_1;
+
+import java.math.BigInteger;
+
+import project_1.Expression.TokenType;
+
+/**
+ * Arbitrary-precision evaluation of expression trees with lazy promotion.
+ * Every operation is first done on long with an exact overflow check; only when
+ * it overflows is that operation redone with BigInteger, and a BigInteger value is
+ * turned back into a long as soon as it fits again. Subtrees that never overflow
+ * are therefore evaluated entirely on the primitive path.
+ * Division and remainder truncate as they do on long, and negative powers keep the
+ * truncation of {@link IntegerPower}; zero to a negative power has no exact value
+ * and throws, and so does a power with more than {@link #MAX_POWER_BITS} bits.
+ * An evaluator must not be shared between threads.
+ */
+public class ExactEvaluator {
+
+    private static final BigInteger LONG_MIN = BigInteger.valueOf(Long.MIN_VALUE);
+    private static final BigInteger LONG_MAX = BigInteger.valueOf(Long.MAX_VALUE);
+
+    /** Largest bit length of a power that is computed rather than rejected. */
+    static final long MAX_POWER_BITS = 1 << 24;
+
+    private BigInteger big; // value of the last subtree evaluated, if it did not fit in a long
+    private long promotions;
+
+    /**
+     * Evaluates an expression tree exactly.
+     *
+     * @param tree The expression tree to evaluate.
+     * @return The exact value of the expression.
+     * @throws ArithmeticException On division by zero, zero to a negative power,
+     *         or a power of more than MAX_POWER_BITS bits.
+     */
+    public BigInteger evaluate(Expression tree) {
+        big = null;
+        long value = eval(tree);
+        BigInteger result = big;
+        big = null;
+        return result != null ? result : BigInteger.valueOf(value);
+    }
+
+    /**
+     * Returns the number of operations done with BigInteger.
+     *
+     * @return The number of promotions so far.
+     */
+    public long promotions() {
+        return promotions;
+    }
+
+    /**
+     * Evaluates a subtree. If its value does not fit in a long, it is left in
+     * {@link #big} and the returned long is meaningless.
+     *
+     * @param tree The subtree to evaluate.
+     * @return The value of the subtree, when big is null.
+     */
+    private long eval(Expression tree) {
+        if (tree.left == null && tree.right == null) {
+            return tree.element.getValue();
+        }
+
+        long left = eval(tree.left);
+        BigInteger bigLeft = big;
+        big = null;
+        long right = eval(tree.right);
+        BigInteger bigRight = big;
+        big = null;
+        TokenType op = tree.element.token;
+
+        if (bigLeft == null && bigRight == null) {
+            try {
+                return applyExact(op, left, right);
+            } catch (ArithmeticException overflow) {
+                // redo the operation with BigInteger below
+            }
+        }
+        promotions++;
+        BigInteger value = applyBig(
+            op,
+            bigLeft != null ? bigLeft : BigInteger.valueOf(left),
+            bigRight != null ? bigRight : BigInteger.valueOf(right)
+        );
+        if (value.compareTo(LONG_MIN) >= 0 && value.compareTo(LONG_MAX) <= 0) {
+            return value.longValue();
+        }
+        big = value;
+        return 0;
+    }
+
+    /**
+     * Applies an operator to two longs, throwing if the result does not fit in a long.
+     * Errors such as division by zero also throw here; the BigInteger path then
+     * reports them.
+     *
+     * @param op The operator.
+     * @param left The left operand.
+     * @param right The right operand.
+     * @return The result of the operation.
+     * @throws ArithmeticException If the result overflows, or on division by zero.
+     */
+    private static long applyExact(TokenType op, long left, long right) {
+        switch (op) {
+            case PLUS:
+                return Math.addExact(left, right);
+            case TIMES:
+                return Math.multiplyExact(left, right);
+            case MINUS:
+                return Math.subtractExact(left, right);
+            case DIV:
+                if (left == Long.MIN_VALUE && right == -1) throw new ArithmeticException("long overflow");
+                return left / right;
+            case MOD:
+                return left % right;
+            case POWER:
+                return IntegerPower.pow(left, right, IntegerPower.Overflow.PROMOTE);
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Applies an operator to two BigIntegers.
+     *
+     * @param op The operator.
+     * @param left The left operand.
+     * @param right The right operand.
+     * @return The result of the operation.
+     * @throws ArithmeticException On division by zero or an impossible power.
+     */
+    private static BigInteger applyBig(TokenType op, BigInteger left, BigInteger right) {
+        switch (op) {
+            case PLUS:
+                return left.add(right);
+            case TIMES:
+                return left.multiply(right);
+            case MINUS:
+                return left.subtract(right);
+            case DIV:
+                return left.divide(right);
+            case MOD:
+                return left.remainder(right);
+            case POWER:
+                if (left.abs().compareTo(BigInteger.ONE) <= 0) {
+                    // only the sign and parity of the exponent matter for 0, 1 and -1
+                    return IntegerPower.powBig(left, right.signum() * (right.testBit(0) ? 1 : 2));
+                }
+                if (right.signum() < 0) return BigInteger.ZERO;
+                if (right.bitLength() > 31 || left.bitLength() * right.longValue() > MAX_POWER_BITS) {
+                    throw new ArithmeticException("power too large");
+                }
+                return IntegerPower.powBig(left, right.longValue());
+            default:
+                return BigInteger.ZERO;
+        }
+    }
+}
@@ -2,12 +2,16 @@ package project_1; // Change to your net id
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.InputStreamReader;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Deque;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Queue;
-import java.util.Scanner;
 
 /**
  * Class to represent an expression and its evaluation using an expression tree.
@@ -25,7 +29,7 @@ public class Expression {
      * Enum to represent the types of tokens in the expression.
      * Operators include PLUS, TIMES, MINUS, DIV, MOD, POWER,
      * parentheses are represented by OPEN and CLOSE,
-     * NUMBER represents operands, and NIL is a special token.
+     * NUMBER and VARIABLE represent operands, and NIL is a special token.
      */
     public enum TokenType {
         PLUS,
@@ -38,18 +42,19 @@ public class Expression {
         CLOSE,
         NIL,
         NUMBER,
+        VARIABLE,
     }
 
     /**
      * Class to represent a token in an expression. A token can be an operator
-     * or an operand (NUMBER).
+     * or an operand (NUMBER or VARIABLE).
      */
     public static class Token {
 
         TokenType token;
         int priority; // for precedence of operator
-        Long number; // used to store number of token = NUMBER
-        String string;
+        long number; // used to store number of token = NUMBER
+        String string; // also the name of a VARIABLE
 
         /**
          * Constructor for an operator token.
@@ -61,7 +66,7 @@ public class Expression {
         Token(TokenType op, int pri, String tok) {
             token = op;
             priority = pri;
-            number = null;
+            number = 0;
             string = tok;
         }
 
@@ -77,21 +82,48 @@ public class Expression {
         }
 
         /**
-         * Checks if the token is an operand (number).
+         * Constructor for a number token from its value.
+         * The string representation is only created if it is printed.
          *
-         * @return true if the token is a number, false otherwise.
+         * @param value The value of the number.
+         */
+        Token(long value) {
+            token = TokenType.NUMBER;
+            number = value;
+            string = null;
+        }
+
+        /**
+         * Constructor for a variable token.
+         *
+         * @param name The name of the variable.
+         * @return The variable token.
+         */
+        static Token variable(String name) {
+            return new Token(TokenType.VARIABLE, 0, name);
+        }
+
+        /**
+         * Checks if the token is an operand (number or variable).
+         *
+         * @return true if the token is an operand, false otherwise.
          */
         boolean isOperand() {
-            return token == TokenType.NUMBER;
+            return token == TokenType.NUMBER || token == TokenType.VARIABLE;
         }
 
         /**
-         * Returns the value of the token if it is an operand.
+         * Returns the value of the token if it is a number.
+         * Variables have no value of their own; they are bound by {@link ColumnarExpression}.
          *
-         * @return The value of the number or 0 if not a number.
+         * @return The value of the number or 0 if not an operand.
+         * @throws IllegalStateException If the token is a variable.
          */
         public long getValue() {
-            return isOperand() ? number : 0;
+            if (token == TokenType.VARIABLE) {
+                throw new IllegalStateException("Unbound variable: " + string);
+            }
+            return number;
         }
 
         /**
@@ -100,52 +132,66 @@ public class Expression {
          * @return The string representation of the token.
          */
         public String toString() {
-            return string;
+            return string != null ? string : Long.toString(number);
         }
     }
 
+    /**
+     * Shared operator and parenthesis tokens, indexed by their character.
+     * Operator tokens are immutable, so one instance of each is reused by all expressions.
+     */
+    private static final Token[] OPERATORS = new Token[128];
+
+    static {
+        OPERATORS['+'] = new Token(TokenType.PLUS, 1, "+");
+        OPERATORS['*'] = new Token(TokenType.TIMES, 2, "*");
+        OPERATORS['-'] = new Token(TokenType.MINUS, 1, "-");
+        OPERATORS['/'] = new Token(TokenType.DIV, 2, "/");
+        OPERATORS['%'] = new Token(TokenType.MOD, 2, "%");
+        OPERATORS['^'] = new Token(TokenType.POWER, 3, "^");
+        OPERATORS['('] = new Token(TokenType.OPEN, 0, "(");
+        OPERATORS[')'] = new Token(TokenType.CLOSE, 0, ")");
+    }
+
+    /**
+     * Returns the shared token of an operator or parenthesis character.
+     *
+     * @param c The character of the token.
+     * @return The shared Token, or null if c is not an operator or a parenthesis.
+     */
+    static Token getToken(char c) {
+        return c < OPERATORS.length ? OPERATORS[c] : null;
+    }
+
     Token element;
     Expression left, right;
 
+    /**
+     * Checks if a character can start a variable name.
+     *
+     * @param c The character to check.
+     * @return true if c is a letter or '_'.
+     */
+    static boolean isVariableStart(int c) {
+        return c == '_' || (c < 128 && Character.isLetter(c));
+    }
+
     /**
      * Converts a string representation of a token to a Token object.
      * Supports operators: +, *, -, /, %, ^, and parentheses.
+     * Operators and parentheses are returned as shared instances.
+     * A token starting with a letter or '_' is a variable.
      *
      * @param tok The string representation of the token.
      * @return The corresponding Token object.
+     * @throws NumberFormatException If the token is empty, or is neither an operator,
+     *         a variable nor a valid long.
      */
     static Token getToken(String tok) {
-        Token result;
-        switch (tok) {
-            case "+":
-                result = new Token(TokenType.PLUS, 1, tok);
-                break;
-            case "*":
-                result = new Token(TokenType.TIMES, 2, tok);
-                break;
-            case "-":
-                result = new Token(TokenType.MINUS, 1, tok);
-                break;
-            case "/":
-                result = new Token(TokenType.DIV, 2, tok);
-                break;
-            case "%":
-                result = new Token(TokenType.MOD, 2, tok);
-                break;
-            case "^":
-                result = new Token(TokenType.POWER, 3, tok);
-                break;
-            case "(":
-                result = new Token(TokenType.OPEN, 0, tok);
-                break;
-            case ")":
-                result = new Token(TokenType.CLOSE, 0, tok);
-                break;
-            default:
-                result = new Token(tok);
-                break;
-        }
-        return result;
+        if (tok.isEmpty()) throw new NumberFormatException("Empty token");
+        Token result = tok.length() == 1 ? getToken(tok.charAt(0)) : null;
+        if (result != null) return result;
+        return isVariableStart(tok.charAt(0)) ? Token.variable(tok) : new Token(tok);
     }
 
     /**
@@ -156,24 +202,24 @@ public class Expression {
     }
 
     /**
-     * Private constructor to create an expression node with an operator and its children.
+     * Constructor to create an expression node with an operator and its children.
      *
      * @param oper The operator token.
      * @param left The left subtree.
      * @param right The right subtree.
      */
-    private Expression(Token oper, Expression left, Expression right) {
+    Expression(Token oper, Expression left, Expression right) {
         this.element = oper;
         this.left = left;
         this.right = right;
     }
 
     /**
-     * Private constructor to create a leaf expression node with a number token.
+     * Constructor to create a leaf expression node with a number token.
      *
      * @param num The number token.
      */
-    private Expression(Token num) {
+    Expression(Token num) {
         this.element = num;
         this.left = null;
         this.right = null;
@@ -186,38 +232,61 @@ public class Expression {
      * @return The expression tree corresponding to the infix expression.
      */
     public static Expression infixToExpression(List<Token> exp) {
-        Deque<Expression> stack = new ArrayDeque<>();
-        Deque<Token> operator = new ArrayDeque<>();
+        return infixToExpression(exp, null);
+    }
 
+    /**
+     * Converts an infix expression to an expression graph in which structurally
+     * identical subtrees are built once and shared, using the given cache.
+     * The cache can be reused across expressions to share subtrees between them.
+     *
+     * @param exp The list of tokens representing the infix expression.
+     * @param cache The cache of shared subtrees, or null to build a plain tree.
+     * @return The expression tree (or DAG) corresponding to the infix expression.
+     */
+    public static Expression infixToExpression(List<Token> exp, ExpressionCache cache) {
+        TreeBuilder builder = new TreeBuilder(cache);
         for (Token token : exp) {
             if (token.isOperand()) {
-                stack.push(new Expression(token));
-            } else if (token.token == TokenType.OPEN) {
-                operator.push(token);
-            } else if (token.token == TokenType.CLOSE) {
-                while (!operator.isEmpty() && operator.peek().token != TokenType.OPEN) {
-                    Expression right = stack.pop();
-                    Expression left = stack.pop();
-                    stack.push(new Expression(operator.pop(), left, right));
-                }
-                operator.pop();
+                builder.stack.push(cache == null ? new Expression(token) : cache.leaf(token));
             } else {
-                while (!operator.isEmpty() && operator.peek().priority >= token.priority) {
-                    Expression right = stack.pop();
-                    Expression left = stack.pop();
-                    stack.push(new Expression(operator.pop(), left, right));
-                }
-                operator.push(token);
+                builder.operator(token.token);
             }
         }
+        builder.finishOperators();
+        return builder.stack.pop();
+    }
+
+    /**
+     * Operand stack of infixToExpression: joins the two top subtrees under every
+     * operator output by the shunting-yard algorithm.
+     */
+    private static class TreeBuilder extends ShuntingYard {
 
-        while (!operator.isEmpty()) {
+        final Deque<Expression> stack = new ArrayDeque<>();
+        final ExpressionCache cache;
+
+        /**
+         * Creates a builder.
+         *
+         * @param cache The cache of shared subtrees, or null to build a plain tree.
+         */
+        TreeBuilder(ExpressionCache cache) {
+            this.cache = cache;
+        }
+
+        /**
+         * Pops the two top subtrees and pushes the node joining them.
+         *
+         * @param op The operator of the node.
+         */
+        @Override
+        void reduce(TokenType op) {
             Expression right = stack.pop();
             Expression left = stack.pop();
-            stack.push(new Expression(operator.pop(), left, right));
+            Token oper = token(op);
+            stack.push(cache == null ? new Expression(oper, left, right) : cache.node(oper, left, right));
         }
-
-        return stack.pop();
     }
 
     /**
@@ -291,7 +360,7 @@ public class Expression {
                         stack.push(left % right);
                         break;
                     case POWER:
-                        stack.push((long) Math.pow(left, right));
+                        stack.push(IntegerPower.pow(left, right));
                         break;
                     default:
                         break;
@@ -301,6 +370,269 @@ public class Expression {
         return stack.pop();
     }
 
+    /**
+     * Operator stack of the shunting-yard algorithm, shared by the infix parsers
+     * (infixToExpression, Evaluator.evaluateInfix and FlatExpression) so that they
+     * all apply operators in the same order. Operands are kept by the subclass,
+     * which is called back by {@link #reduce(TokenType)} for every operator output.
+     */
+    abstract static class ShuntingYard {
+
+        /** Priority of each token type, indexed by ordinal. */
+        private static final int[] PRIORITY = new int[TokenType.values().length];
+
+        /** Shared token of each operator and parenthesis type, indexed by ordinal. */
+        private static final Token[] TOKENS = new Token[TokenType.values().length];
+
+        static {
+            for (char c : "+*-/%^()".toCharArray()) {
+                Token op = getToken(c);
+                PRIORITY[op.token.ordinal()] = op.priority;
+                TOKENS[op.token.ordinal()] = op;
+            }
+        }
+
+        static final TokenType[] TYPES = TokenType.values();
+
+        private int[] operators = new int[16]; // ordinals of pending operators
+        private int opTop;
+
+        /**
+         * Returns the shared token of an operator or parenthesis type.
+         *
+         * @param type The type of the token.
+         * @return The token, as returned by getToken.
+         */
+        static Token token(TokenType type) {
+            return TOKENS[type.ordinal()];
+        }
+
+        /**
+         * Applies an operator to the two top operands of the subclass.
+         *
+         * @param op The operator.
+         */
+        abstract void reduce(TokenType op);
+
+        /**
+         * Empties the operator stack, to start a new expression.
+         */
+        final void resetOperators() {
+            opTop = 0;
+        }
+
+        /**
+         * Handles an operator or parenthesis of an infix expression.
+         *
+         * @param type The type of the token.
+         */
+        final void operator(TokenType type) {
+            if (type == TokenType.OPEN) {
+                pushOperator(type.ordinal());
+            } else if (type == TokenType.CLOSE) {
+                while (opTop > 0 && operators[opTop - 1] != TokenType.OPEN.ordinal()) {
+                    reduce(TYPES[operators[--opTop]]);
+                }
+                if (opTop == 0) throw new NoSuchElementException("Unmatched )");
+                opTop--;
+            } else {
+                int priority = PRIORITY[type.ordinal()];
+                while (opTop > 0 && PRIORITY[operators[opTop - 1]] >= priority) {
+                    reduce(TYPES[operators[--opTop]]);
+                }
+                pushOperator(type.ordinal());
+            }
+        }
+
+        /**
+         * Pushes an operator ordinal, doubling the operator stack when it is full.
+         *
+         * @param op The ordinal of the operator.
+         */
+        private void pushOperator(int op) {
+            if (opTop == operators.length) {
+                operators = Arrays.copyOf(operators, 2 * operators.length);
+            }
+            operators[opTop++] = op;
+        }
+
+        /**
+         * Applies the pending operators, at the end of the expression.
+         */
+        final void finishOperators() {
+            while (opTop > 0) {
+                reduce(TYPES[operators[--opTop]]);
+            }
+        }
+    }
+
+    /**
+     * Reusable evaluator that keeps operands on a growable primitive long stack.
+     * Once the stack has grown to the depth of the largest expression seen,
+     * evaluating does not allocate. An evaluator must not be shared between threads.
+     * The overflow policy of POWER is fixed when the evaluator is constructed.
+     */
+    public static class Evaluator extends ShuntingYard {
+
+        long[] stack;
+        int top;
+        final IntegerPower.Overflow overflow;
+
+        /**
+         * Constructs an evaluator with small initial stacks and the default overflow policy.
+         */
+        public Evaluator() {
+            this(IntegerPower.DEFAULT_OVERFLOW);
+        }
+
+        /**
+         * Constructs an evaluator with small initial stacks.
+         *
+         * @param overflow What POWER does when its result does not fit in a long.
+         */
+        public Evaluator(IntegerPower.Overflow overflow) {
+            stack = new long[16];
+            top = 0;
+            this.overflow = overflow;
+        }
+
+        /**
+         * Pushes a value on the operand stack, doubling the stack when it is full.
+         *
+         * @param value The value to push.
+         */
+        void push(long value) {
+            if (top == stack.length) {
+                stack = Arrays.copyOf(stack, 2 * stack.length);
+            }
+            stack[top++] = value;
+        }
+
+        /**
+         * Applies an operator to two operands, with the default overflow policy.
+         *
+         * @param op The operator.
+         * @param left The left operand.
+         * @param right The right operand.
+         * @return The result of the operation.
+         */
+        static long apply(TokenType op, long left, long right) {
+            return apply(op, left, right, IntegerPower.DEFAULT_OVERFLOW);
+        }
+
+        /**
+         * Applies an operator to two operands.
+         *
+         * @param op The operator.
+         * @param left The left operand.
+         * @param right The right operand.
+         * @param overflow What POWER does when its result does not fit in a long.
+         * @return The result of the operation.
+         */
+        static long apply(TokenType op, long left, long right, IntegerPower.Overflow overflow) {
+            switch (op) {
+                case PLUS:
+                    return left + right;
+                case TIMES:
+                    return left * right;
+                case MINUS:
+                    return left - right;
+                case DIV:
+                    return left / right;
+                case MOD:
+                    return left % right;
+                case POWER:
+                    return IntegerPower.pow(left, right, overflow);
+                default:
+                    return 0;
+            }
+        }
+
+        /**
+         * Evaluates a postfix expression represented as a list of tokens.
+         * Gives the same results as {@link Expression#evaluatePostfix(List)}.
+         *
+         * @param exp The list of tokens representing the postfix expression.
+         * @return The evaluated result of the postfix expression.
+         */
+        public long evaluatePostfix(List<Token> exp) {
+            top = 0;
+            for (Token token : exp) {
+                if (token.isOperand()) {
+                    push(token.getValue());
+                } else {
+                    long right = stack[--top];
+                    stack[top - 1] = apply(token.token, stack[top - 1], right, overflow);
+                }
+            }
+            return stack[--top];
+        }
+
+        /**
+         * Evaluates an infix expression in one pass, without building a postfix list or a tree.
+         * Operators are applied as soon as the shunting-yard algorithm would output them,
+         * so the result is the same as evaluating {@link Expression#infixToExpression(List)}.
+         *
+         * @param exp The list of tokens representing the infix expression.
+         * @return The evaluated result of the infix expression.
+         */
+        public long evaluateInfix(List<Token> exp) {
+            top = 0;
+            resetOperators();
+            for (Token token : exp) {
+                if (token.isOperand()) {
+                    push(token.getValue());
+                } else {
+                    operator(token.token);
+                }
+            }
+            return finish();
+        }
+
+        /**
+         * Evaluates the rest of the current line of a tokenizer in one pass.
+         * Numbers are read as primitives, so no Token is created.
+         *
+         * @param in Tokenizer positioned on the line to evaluate.
+         * @return The evaluated result of the infix expression.
+         */
+        public long evaluateInfix(ExpressionTokenizer in) {
+            top = 0;
+            resetOperators();
+            for (TokenType type = in.nextType(); type != null; type = in.nextType()) {
+                if (type == TokenType.NUMBER) {
+                    push(in.number());
+                } else if (type == TokenType.VARIABLE) {
+                    push(in.variable().getValue());
+                } else {
+                    operator(type);
+                }
+            }
+            return finish();
+        }
+
+        /**
+         * Applies an operator to the two top operands.
+         *
+         * @param op The operator.
+         */
+        @Override
+        void reduce(TokenType op) {
+            long right = stack[--top];
+            stack[top - 1] = apply(op, stack[top - 1], right, overflow);
+        }
+
+        /**
+         * Applies the pending operators and returns the value of the expression.
+         *
+         * @return The evaluated result.
+         */
+        private long finish() {
+            finishOperators();
+            return stack[--top];
+        }
+    }
+
     /**
      * Evaluates an expression tree and returns its value.
      *
@@ -308,23 +640,187 @@ public class Expression {
      * @return The evaluated result of the expression tree.
      */
     public static long evaluateExpression(Expression tree) {
+        return evaluateExpression(tree, IntegerPower.DEFAULT_OVERFLOW);
+    }
+
+    /**
+     * Evaluates an expression tree with the given overflow policy for POWER.
+     *
+     * @param tree The expression tree to evaluate.
+     * @param overflow What POWER does when its result does not fit in a long.
+     * @return The evaluated result of the expression tree.
+     */
+    public static long evaluateExpression(Expression tree, IntegerPower.Overflow overflow) {
         if (tree.left == null && tree.right == null) {
             return tree.element.getValue();
         }
 
-        long left = evaluateExpression(tree.left);
-        long right = evaluateExpression(tree.right);
+        long left = evaluateExpression(tree.left, overflow);
+        long right = evaluateExpression(tree.right, overflow);
         return switch (tree.element.token) {
             case PLUS -> left + right;
             case TIMES -> left * right;
             case MINUS -> left - right;
             case DIV -> left / right;
             case MOD -> left % right;
-            case POWER -> (long) Math.pow(left, right);
+            case POWER -> IntegerPower.pow(left, right, overflow);
             default -> 0;
         };
     }
 
+    /**
+     * Explicit stack of tree nodes with a visit state per node, used by the
+     * iterative traversals so that deep trees do not overflow the call stack.
+     */
+    static class TraversalStack {
+
+        Expression[] nodes = new Expression[64];
+        int[] state = new int[64];
+        int top;
+
+        /**
+         * Pushes a node with its initial state, doubling the stack when it is full.
+         *
+         * @param node The node to push.
+         * @param st The initial state of the node.
+         */
+        void push(Expression node, int st) {
+            if (top == nodes.length) {
+                nodes = Arrays.copyOf(nodes, 2 * top);
+                state = Arrays.copyOf(state, 2 * top);
+            }
+            nodes[top] = node;
+            state[top++] = st;
+        }
+    }
+
+    /** Visit states of a node on a TraversalStack. */
+    static final int BEFORE_LEFT = 0, BEFORE_RIGHT = 1, AFTER_RIGHT = 2;
+
+    /** State flag of a node that is printed inside parentheses. */
+    private static final int PARENS = 4;
+
+    /**
+     * Evaluates an expression tree with an explicit stack instead of recursion.
+     * Gives the same result as {@link #evaluateExpression(Expression)}, for trees of any depth.
+     *
+     * @param tree The expression tree to evaluate.
+     * @return The evaluated result of the expression tree.
+     */
+    public static long evaluateIterative(Expression tree) {
+        TraversalStack stack = new TraversalStack();
+        Evaluator values = new Evaluator();
+        stack.push(tree, BEFORE_LEFT);
+        while (stack.top > 0) {
+            int i = stack.top - 1;
+            Expression node = stack.nodes[i];
+            if (node.left == null && node.right == null) {
+                values.push(node.element.getValue());
+                stack.top--;
+            } else if (stack.state[i] == BEFORE_LEFT) {
+                stack.state[i] = BEFORE_RIGHT;
+                stack.push(node.left, BEFORE_LEFT);
+            } else if (stack.state[i] == BEFORE_RIGHT) {
+                stack.state[i] = AFTER_RIGHT;
+                stack.push(node.right, BEFORE_LEFT);
+            } else {
+                long right = values.stack[--values.top];
+                values.stack[values.top - 1] =
+                    Evaluator.apply(node.element.token, values.stack[values.top - 1], right);
+                stack.top--;
+            }
+        }
+        return values.stack[0];
+    }
+
+    /**
+     * Prints an expression tree in postfix order, with tokens separated by spaces.
+     * Uses an explicit stack, so trees of any depth can be printed.
+     *
+     * @param tree The expression tree to print.
+     * @return The postfix expression.
+     */
+    public static String toPostfixString(Expression tree) {
+        StringBuilder out = new StringBuilder();
+        TraversalStack stack = new TraversalStack();
+        stack.push(tree, BEFORE_LEFT);
+        while (stack.top > 0) {
+            int i = stack.top - 1;
+            Expression node = stack.nodes[i];
+            if (node.left == null && node.right == null || stack.state[i] == AFTER_RIGHT) {
+                if (out.length() > 0) out.append(' ');
+                out.append(node.element);
+                stack.top--;
+            } else if (stack.state[i] == BEFORE_LEFT) {
+                stack.state[i] = BEFORE_RIGHT;
+                stack.push(node.left, BEFORE_LEFT);
+            } else {
+                stack.state[i] = AFTER_RIGHT;
+                stack.push(node.right, BEFORE_LEFT);
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Prints an expression tree as an infix expression, with tokens separated by spaces.
+     * Parentheses are only added where they are needed for the expression to parse
+     * back into the same tree: around an operand of lower priority, and around a right
+     * operand of equal priority, since all operators are left associative.
+     * Uses an explicit stack, so trees of any depth can be printed.
+     *
+     * @param tree The expression tree to print.
+     * @return The infix expression.
+     */
+    public static String toInfixString(Expression tree) {
+        StringBuilder out = new StringBuilder();
+        TraversalStack stack = new TraversalStack();
+        stack.push(tree, BEFORE_LEFT);
+        while (stack.top > 0) {
+            int i = stack.top - 1;
+            Expression node = stack.nodes[i];
+            int st = stack.state[i];
+            if (node.left == null && node.right == null) {
+                space(out).append(node.element);
+                stack.top--;
+            } else if ((st & ~PARENS) == BEFORE_LEFT) {
+                if ((st & PARENS) != 0) space(out).append('(');
+                stack.state[i] = BEFORE_RIGHT | (st & PARENS);
+                int priority = node.element.priority;
+                stack.push(node.left, isOperator(node.left) && node.left.element.priority < priority ? PARENS : 0);
+            } else if ((st & ~PARENS) == BEFORE_RIGHT) {
+                space(out).append(node.element);
+                stack.state[i] = AFTER_RIGHT | (st & PARENS);
+                int priority = node.element.priority;
+                stack.push(node.right, isOperator(node.right) && node.right.element.priority <= priority ? PARENS : 0);
+            } else {
+                if ((st & PARENS) != 0) out.append(" )");
+                stack.top--;
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Checks if a node is an operator node.
+     *
+     * @param node The node to check.
+     * @return true if the node has children.
+     */
+    private static boolean isOperator(Expression node) {
+        return node.left != null || node.right != null;
+    }
+
+    /**
+     * Appends a token separator unless the output is empty.
+     *
+     * @param out The output being built.
+     * @return The output.
+     */
+    private static StringBuilder space(StringBuilder out) {
+        return out.length() > 0 ? out.append(' ') : out;
+    }
+
     /**
      * Main method to test the functionality of the Expression class.
      * Reads an infix expression from input, converts it to an expression tree,
@@ -334,26 +830,19 @@ public class Expression {
      * @throws FileNotFoundException If the input file is not found.
      */
     public static void main(String[] args) throws FileNotFoundException {
-        Scanner in;
+        ExpressionTokenizer in;
 
         if (args.length > 0) {
             File inputFile = new File(args[0]);
-            in = new Scanner(inputFile);
+            in = new ExpressionTokenizer(new FileReader(inputFile));
         } else {
-            in = new Scanner(System.in);
+            in = new ExpressionTokenizer(new InputStreamReader(System.in));
         }
 
         int count = 0;
-        while (in.hasNext()) {
-            String s = in.nextLine();
-            List<Token> infix = new LinkedList<>();
-            Scanner sscan = new Scanner(s);
-            int len = 0;
-            while (sscan.hasNext()) {
-                infix.add(getToken(sscan.next()));
-                len++;
-            }
-            if (len > 0) {
+        List<Token> infix = new ArrayList<>();
+        while (in.nextLine(infix)) {
+            if (!infix.isEmpty()) {
                 count++;
                 System.out.println("Expression number: " + count);
                 System.out.println("Infix expression: " + infix);
@@ -364,8 +853,6 @@ public class Expression {
                 long eval = evaluateExpression(exp);
                 System.out.println("Postfix eval: " + pval + " Exp eval: " + eval + "\n");
             }
-
-            sscan.close();
         }
 
         in.close();
@@ -0,0 +1,204 @@
+package project_1;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import project_1.Expression.Token;
+
+/**
+ * Parallel batch evaluation of an expression file, one expression per line.
+ * The file is split into chunks at line boundaries, each chunk is memory mapped,
+ * parsed and evaluated on a fork-join pool, and the results are written in the
+ * original order with the same output and numbering as {@link Expression#main}.
+ *
+ * Usage:
+ *     java project_1.ExpressionBatch file [threads]
+ *     java project_1.ExpressionBatch -bench file [maxThreads]
+ * The -bench mode discards the output and reports lines per second for
+ * 1, 2, 4, ... up to maxThreads threads.
+ */
+public class ExpressionBatch {
+
+    /** Target size of a chunk in bytes; chunks end at the next line break. */
+    static final int CHUNK_SIZE = 1 << 20;
+
+    /**
+     * Output of one chunk: the text of its expressions, without the
+     * "Expression number" lines, which depend on the chunks before it.
+     */
+    static class Result {
+
+        final StringBuilder text = new StringBuilder();
+        final List<Integer> starts = new ArrayList<>(); // start of each expression in text
+        int lines;
+    }
+
+    /**
+     * Finds the chunk boundaries of a file: every chunk but the last ends just after a line break.
+     *
+     * @param channel The file to split.
+     * @param chunkSize Target size of a chunk in bytes.
+     * @return Offsets of the chunk boundaries, starting with 0 and ending with the file size.
+     * @throws IOException If the file cannot be read.
+     */
+    static long[] split(FileChannel channel, int chunkSize) throws IOException {
+        long size = channel.size();
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        long pos = chunkSize;
+        while (pos < size) {
+            long end = -1;
+            while (end < 0 && pos < size) {
+                probe.clear();
+                int n = channel.read(probe, pos);
+                for (int i = 0; i < n; i++) {
+                    if (probe.get(i) == '\n') {
+                        end = pos + i + 1;
+                        break;
+                    }
+                }
+                pos += Math.max(n, 0);
+                if (n <= 0) break;
+            }
+            if (end < 0 || end >= size) break;
+            bounds.add(end);
+            pos = end + chunkSize;
+        }
+        bounds.add(size);
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Parses and evaluates the expressions of one chunk.
+     *
+     * @param bytes The contents of the chunk.
+     * @param print Whether to build the output text, or only count the expressions.
+     * @param overflow What POWER does when its result does not fit in a long.
+     * @return The output of the chunk.
+     */
+    static Result evaluate(ByteBuffer bytes, boolean print, IntegerPower.Overflow overflow) {
+        Result result = new Result();
+        ExpressionTokenizer in = new ExpressionTokenizer(bytes);
+        List<Token> infix = new ArrayList<>();
+        Expression.Evaluator evaluator = new Expression.Evaluator(overflow);
+        while (in.nextLine(infix)) {
+            if (infix.isEmpty()) continue;
+            result.lines++;
+            Expression exp = Expression.infixToExpression(infix);
+            List<Token> post = Expression.infixToPostfix(infix);
+            long pval = evaluator.evaluatePostfix(post);
+            long eval = Expression.evaluateExpression(exp, overflow);
+            if (print) {
+                result.starts.add(result.text.length());
+                result.text
+                    .append("Infix expression: ").append(infix).append('\n')
+                    .append("Postfix expression: ").append(post).append('\n')
+                    .append("Postfix eval: ").append(pval)
+                    .append(" Exp eval: ").append(eval).append("\n\n");
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Evaluates a file on a pool of the given size and writes the results in order.
+     * At most a few chunks per thread are in flight, so memory use does not grow with the file.
+     *
+     * @param file The expression file.
+     * @param threads Number of worker threads.
+     * @param out Where to write the results, or null to only count the expressions.
+     * @param overflow What POWER does when its result does not fit in a long.
+     * @return The number of expressions evaluated.
+     * @throws IOException If the file cannot be read or the output cannot be written.
+     */
+    public static long run(File file, int threads, Writer out, IntegerPower.Overflow overflow) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long[] bounds = split(channel, CHUNK_SIZE);
+            ArrayDeque<ForkJoinTask<Result>> pending = new ArrayDeque<>();
+            int window = 4 * threads;
+            int next = 0;
+            long count = 0;
+            while (next < bounds.length - 1 || !pending.isEmpty()) {
+                while (next < bounds.length - 1 && pending.size() < window) {
+                    ByteBuffer chunk = channel.map(
+                        FileChannel.MapMode.READ_ONLY, bounds[next], bounds[next + 1] - bounds[next]
+                    );
+                    pending.add(pool.submit(() -> evaluate(chunk, out != null, overflow)));
+                    next++;
+                }
+                Result result = pending.remove().join();
+                if (out != null) {
+                    write(result, count, out);
+                }
+                count += result.lines;
+            }
+            if (out != null) out.flush();
+            return count;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Writes the output of a chunk, numbering its expressions after those already written.
+     *
+     * @param result The output of the chunk.
+     * @param before Number of expressions written before this chunk.
+     * @param out Where to write the output.
+     * @throws IOException If the output cannot be written.
+     */
+    private static void write(Result result, long before, Writer out) throws IOException {
+        for (int i = 0; i < result.starts.size(); i++) {
+            int start = result.starts.get(i);
+            int end = i + 1 < result.starts.size() ? result.starts.get(i + 1) : result.text.length();
+            out.write("Expression number: " + (before + i + 1) + "\n");
+            out.append(result.text, start, end);
+        }
+    }
+
+    /**
+     * Runs the batch evaluation, or the -bench throughput report.
+     *
+     * @param args Command-line arguments, see the class comment.
+     * @throws IOException If the file cannot be read.
+     */
+    public static void main(String[] args) throws IOException {
+        int processors = Runtime.getRuntime().availableProcessors();
+        if (args.length > 0 && args[0].equals("-bench")) {
+            File file = new File(args[1]);
+            int maxThreads = args.length > 2 ? Integer.parseInt(args[2]) : processors;
+            run(file, 1, null, IntegerPower.DEFAULT_OVERFLOW); // warm up
+            for (int threads = 1; ; threads = Math.min(2 * threads, maxThreads)) {
+                long start = System.nanoTime();
+                long lines = run(file, threads, null, IntegerPower.DEFAULT_OVERFLOW);
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("Threads: %d Lines: %d Time: %.3f s Lines/sec: %.0f%n",
+                    threads, lines, seconds, lines / seconds);
+                if (threads == maxThreads) break;
+            }
+            return;
+        }
+
+        File file = new File(args[0]);
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : processors;
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16);
+        run(file, threads, out, IntegerPower.DEFAULT_OVERFLOW);
+    }
+}
@@ -0,0 +1,383 @@
+package project_1;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Scanner;
+
+import com.sun.management.ThreadMXBean;
+
+import project_1.Expression.Token;
+
+/**
+ * Benchmark harness for parsing and evaluation of expressions: getToken,
+ * infixToPostfix, infixToExpression, evaluatePostfix and evaluateExpression.
+ * Each benchmark is warmed up, then timed over several iterations, and reports
+ * the time and the bytes allocated per operation, measured from the allocation
+ * counter of the current thread (the same figure as gc.alloc.rate.norm).
+ *
+ * Workloads are the valid lines of a testcase file and expressions generated
+ * from them: the operator mix is the one found in the file, and the generated
+ * expressions vary in size (operands per expression) and in parenthesis depth.
+ * The JMH benchmarks of jmh/ (see ParseBenchmark) run the same operations on the
+ * same workloads.
+ *
+ * Usage: java project_1.ExpressionBenchmark [testcases] [iterations]
+ */
+public class ExpressionBenchmark {
+
+    static final int WARMUP_ITERATIONS = 5;
+    static final long ITERATION_NANOS = 200_000_000L;
+
+    static volatile long sink; // keeps results alive
+
+    private static final ThreadMXBean THREADS =
+        ManagementFactory.getThreadMXBean() instanceof ThreadMXBean
+            ? (ThreadMXBean) ManagementFactory.getThreadMXBean()
+            : null;
+
+    /**
+     * One benchmarked operation over a whole workload.
+     */
+    interface Operation {
+
+        /**
+         * Runs the operation once on every expression of the workload.
+         *
+         * @return A value depending on the results, so that they are not optimized away.
+         */
+        long run();
+    }
+
+    /**
+     * Set of expressions, with each expression prepared in every form the benchmarks need.
+     */
+    static class Workload {
+
+        final String name;
+        final List<String[]> words = new ArrayList<>();
+        final List<List<Token>> infix = new ArrayList<>();
+        final List<List<Token>> postfix = new ArrayList<>();
+        final List<Expression> trees = new ArrayList<>();
+        int tokens;
+
+        /**
+         * Creates a workload from expressions given as text.
+         *
+         * @param name The name of the workload.
+         * @param lines The expressions, with tokens separated by spaces.
+         */
+        Workload(String name, List<String> lines) {
+            this.name = name;
+            for (String line : lines) {
+                String[] w = line.trim().split("\\s+");
+                List<Token> in = new ArrayList<>();
+                for (String s : w) in.add(Expression.getToken(s));
+                words.add(w);
+                infix.add(in);
+                postfix.add(Expression.infixToPostfix(in));
+                trees.add(Expression.infixToExpression(in));
+                tokens += w.length;
+            }
+        }
+    }
+
+    /**
+     * Reads the lines of a testcase file that parse and evaluate without error.
+     *
+     * @param file The testcase file.
+     * @return The valid lines.
+     * @throws FileNotFoundException If the file is not found.
+     */
+    static List<String> validLines(String file) throws FileNotFoundException {
+        List<String> lines = new ArrayList<>();
+        try (Scanner in = new Scanner(new File(file))) {
+            while (in.hasNextLine()) {
+                String line = in.nextLine().trim();
+                if (!line.isEmpty() && isValid(line)) lines.add(line);
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Checks if an expression parses and evaluates without error.
+     *
+     * @param line The expression.
+     * @return true if it is valid.
+     */
+    static boolean isValid(String line) {
+        try {
+            List<Token> in = new ArrayList<>();
+            for (String s : line.split("\\s+")) in.add(Expression.getToken(s));
+            Expression.evaluateExpression(Expression.infixToExpression(in));
+            Expression.evaluatePostfix(Expression.infixToPostfix(in));
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Collects the operators of the seed expressions, one entry per occurrence,
+     * so that picking uniformly from it follows their operator mix.
+     *
+     * @param lines The seed expressions.
+     * @return The operators, with repetitions.
+     */
+    static String operatorMix(List<String> lines) {
+        StringBuilder mix = new StringBuilder();
+        for (String line : lines) {
+            for (String s : line.split("\\s+")) {
+                if (s.length() == 1 && "+-*/%^".indexOf(s.charAt(0)) >= 0) mix.append(s);
+            }
+        }
+        return mix.length() > 0 ? mix.toString() : "+-*/%^";
+    }
+
+    /**
+     * Generates a random expression.
+     *
+     * @param operands Number of operands.
+     * @param depth Maximum nesting of parentheses.
+     * @param mix Operators to pick from.
+     * @param random Source of randomness.
+     * @return The expression, with tokens separated by spaces.
+     */
+    static String generate(int operands, int depth, String mix, Random random) {
+        if (operands == 1) return Integer.toString(1 + random.nextInt(99));
+        StringBuilder s = new StringBuilder();
+        int remaining = operands;
+        while (remaining > 0) {
+            if (s.length() > 0) {
+                s.append(' ').append(mix.charAt(random.nextInt(mix.length()))).append(' ');
+            }
+            int n = depth > 0 && remaining > 1 && random.nextInt(3) == 0
+                ? 1 + random.nextInt(Math.min(remaining, 8)) : 1;
+            if (n > 1) {
+                s.append("( ").append(generate(n, depth - 1, mix, random)).append(" )");
+            } else {
+                s.append(1 + random.nextInt(99));
+            }
+            remaining -= n;
+        }
+        return s.toString();
+    }
+
+    /**
+     * Generates a random expression whose parentheses are nested exactly depth deep:
+     * every level holds an equal share of the operands and one parenthesized group,
+     * at a random position, containing all the levels below it.
+     *
+     * @param operands Number of operands, at least depth + 1.
+     * @param depth Nesting of parentheses.
+     * @param mix Operators to pick from.
+     * @param random Source of randomness.
+     * @return The expression, with tokens separated by spaces.
+     */
+    static String generateNested(int operands, int depth, String mix, Random random) {
+        if (depth == 0) return generate(operands, 0, mix, random);
+        int own = Math.max(1, (operands - 1) / (depth + 1));
+        int group = random.nextInt(own + 1);
+        StringBuilder s = new StringBuilder();
+        for (int i = 0; i <= own; i++) {
+            if (i > 0) s.append(' ').append(mix.charAt(random.nextInt(mix.length()))).append(' ');
+            if (i == group) {
+                s.append("( ").append(generateNested(operands - own, depth - 1, mix, random)).append(" )");
+            } else {
+                s.append(1 + random.nextInt(99));
+            }
+        }
+        return s.toString();
+    }
+
+    /**
+     * Generates a workload of valid expressions.
+     *
+     * @param name The name of the workload.
+     * @param count Number of expressions.
+     * @param operands Operands per expression.
+     * @param depth Maximum nesting of parentheses.
+     * @param mix Operators to pick from.
+     * @return The workload.
+     */
+    static Workload generated(String name, int count, int operands, int depth, String mix) {
+        return generated(name, count, operands, depth, mix, false);
+    }
+
+    /**
+     * Generates a workload of valid expressions.
+     *
+     * @param name The name of the workload.
+     * @param count Number of expressions.
+     * @param operands Operands per expression.
+     * @param depth Maximum nesting of parentheses, or exact nesting if nested is set.
+     * @param mix Operators to pick from.
+     * @param nested Whether to nest every expression depth deep, with generateNested.
+     * @return The workload.
+     */
+    static Workload generated(String name, int count, int operands, int depth, String mix, boolean nested) {
+        Random random = new Random(operands * 31L + depth);
+        List<String> lines = new ArrayList<>();
+        while (lines.size() < count) {
+            String line = nested ? generateNested(operands, depth, mix, random) : generate(operands, depth, mix, random);
+            if (isValid(line)) lines.add(line);
+        }
+        return new Workload(name, lines);
+    }
+
+    /** Names of the workloads, in the order they are run. */
+    static final String[] WORKLOADS = {"testcases", "small", "medium", "large", "nested", "powers"};
+
+    /**
+     * Builds one workload: the seed expressions or one of the generated sets.
+     *
+     * @param name The name of the workload, one of {@link #WORKLOADS}.
+     * @param seeds The valid lines of a testcase file.
+     * @return The workload.
+     * @throws IllegalArgumentException If there is no workload with that name.
+     */
+    static Workload workload(String name, List<String> seeds) {
+        return switch (name) {
+            case "testcases" -> new Workload("testcases", seeds);
+            case "small" -> generated("small", 1000, 4, 1, operatorMix(seeds));
+            case "medium" -> generated("medium", 200, 32, 3, operatorMix(seeds));
+            case "large" -> generated("large", 20, 1000, 4, operatorMix(seeds));
+            case "nested" -> generated("nested", 20, 200, 50, operatorMix(seeds), true);
+            case "powers" -> generated("powers", 200, 16, 2, "^^+*");
+            default -> throw new IllegalArgumentException("No workload named " + name);
+        };
+    }
+
+    /**
+     * Builds every workload: the seed expressions and the generated ones.
+     *
+     * @param seeds The valid lines of a testcase file.
+     * @return The workloads.
+     */
+    static List<Workload> workloads(List<String> seeds) {
+        List<Workload> workloads = new ArrayList<>();
+        for (String name : WORKLOADS) {
+            workloads.add(workload(name, seeds));
+        }
+        return workloads;
+    }
+
+    /**
+     * Returns the bytes allocated so far by the current thread.
+     *
+     * @return The allocated bytes, or 0 if not supported by the JVM.
+     */
+    static long allocatedBytes() {
+        return THREADS != null ? THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+    }
+
+    /**
+     * Warms up and measures one operation, then prints its time and allocation per
+     * operation, averaged over the measured iterations.
+     *
+     * @param workload The workload the operation runs on.
+     * @param name The name of the operation.
+     * @param opsPerRun Number of operations done by one run.
+     * @param iterations Number of measured iterations.
+     * @param operation The operation.
+     */
+    static void measure(Workload workload, String name, int opsPerRun, int iterations, Operation operation) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            iterate(operation);
+        }
+        double best = Double.MAX_VALUE, total = 0;
+        double bytes = 0;
+        for (int i = 0; i < iterations; i++) {
+            long allocated = allocatedBytes();
+            long[] result = iterate(operation);
+            double nsPerOp = (double) result[0] / (result[1] * opsPerRun);
+            bytes += (double) (allocatedBytes() - allocated) / (result[1] * opsPerRun);
+            best = Math.min(best, nsPerOp);
+            total += nsPerOp;
+        }
+        System.out.printf("%-12s %-20s %12.1f ns/op (best %10.1f) %12.1f B/op%n",
+            workload.name, name, total / iterations, best, bytes / iterations);
+    }
+
+    /**
+     * Runs an operation repeatedly for one iteration.
+     *
+     * @param operation The operation.
+     * @return The elapsed time in nanoseconds and the number of runs.
+     */
+    static long[] iterate(Operation operation) {
+        long start = System.nanoTime();
+        long runs = 0;
+        long s = 0;
+        long elapsed;
+        do {
+            s += operation.run();
+            runs++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < ITERATION_NANOS);
+        sink = s;
+        return new long[] {elapsed, runs};
+    }
+
+    /**
+     * Runs every benchmark on every workload.
+     *
+     * @param w The workload.
+     * @param iterations Number of measured iterations per benchmark.
+     */
+    static void run(Workload w, int iterations) {
+        int n = w.infix.size();
+        measure(w, "getToken", w.tokens, iterations, () -> {
+            long s = 0;
+            for (String[] line : w.words) {
+                for (String word : line) s += Expression.getToken(word).priority;
+            }
+            return s;
+        });
+        measure(w, "infixToPostfix", n, iterations, () -> {
+            long s = 0;
+            for (List<Token> in : w.infix) s += Expression.infixToPostfix(in).size();
+            return s;
+        });
+        measure(w, "infixToExpression", n, iterations, () -> {
+            long s = 0;
+            for (List<Token> in : w.infix) s += Expression.infixToExpression(in).element.priority;
+            return s;
+        });
+        measure(w, "evaluatePostfix", n, iterations, () -> {
+            long s = 0;
+            for (List<Token> post : w.postfix) s += Expression.evaluatePostfix(post);
+            return s;
+        });
+        measure(w, "evaluateExpression", n, iterations, () -> {
+            long s = 0;
+            for (Expression tree : w.trees) s += Expression.evaluateExpression(tree);
+            return s;
+        });
+    }
+
+    /**
+     * Runs the benchmarks.
+     *
+     * @param args Optional testcase file and number of measured iterations.
+     * @throws FileNotFoundException If the testcase file is not found.
+     */
+    public static void main(String[] args) throws FileNotFoundException {
+        String file = args.length > 0 ? args[0] : "project_1/p1-testcases.txt";
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        if (THREADS == null || !THREADS.isThreadAllocatedMemorySupported()) {
+            System.out.println("Allocation counters are not supported by this JVM; B/op will be 0");
+        } else {
+            THREADS.setThreadAllocatedMemoryEnabled(true);
+        }
+
+        for (Workload w : workloads(validLines(file))) {
+            run(w, iterations);
+            System.out.println();
+        }
+    }
+}
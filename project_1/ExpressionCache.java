@@ -0,0 +1,178 @@
+package project_1;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import project_1.Expression.Token;
+import project_1.Expression.TokenType;
+
+/**
+ * Hash-consing cache used by {@link Expression#infixToExpression(java.util.List, ExpressionCache)}
+ * to build structurally identical subtrees only once, turning the tree into a DAG.
+ * Children are already shared when their parent is built, so two nodes are identical
+ * exactly when they have the same operator and the same child objects.
+ * Also evaluates the DAG so that each shared node is computed once per evaluation.
+ */
+public class ExpressionCache {
+
+    /**
+     * Key of an operator node: its operator and the identity of its children.
+     */
+    private static class Key {
+
+        final TokenType op;
+        final Expression left, right;
+
+        /**
+         * Constructs the key of an operator node.
+         *
+         * @param op The operator.
+         * @param left The shared left child.
+         * @param right The shared right child.
+         */
+        Key(TokenType op, Expression left, Expression right) {
+            this.op = op;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key k = (Key) o;
+            return op == k.op && left == k.left && right == k.right;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * op.hashCode() + System.identityHashCode(left))
+                + System.identityHashCode(right);
+        }
+    }
+
+    private final Map<Long, Expression> leaves = new HashMap<>();
+    private final Map<String, Expression> variables = new HashMap<>();
+    private final Map<Key, Expression> nodes = new HashMap<>();
+    private final Set<Expression> shared = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    private long deduplicated;
+    private long evaluationsSaved;
+
+    /**
+     * Returns the shared leaf for a number or variable token, creating it if needed.
+     *
+     * @param num The operand token.
+     * @return The shared leaf node.
+     */
+    Expression leaf(Token num) {
+        if (num.token == TokenType.VARIABLE) {
+            Expression leaf = variables.get(num.string);
+            if (leaf != null) {
+                deduplicated++;
+                return leaf;
+            }
+            leaf = new Expression(num);
+            variables.put(num.string, leaf);
+            return leaf;
+        }
+        Expression leaf = leaves.get(num.number);
+        if (leaf != null) {
+            deduplicated++;
+            return leaf;
+        }
+        leaf = new Expression(num);
+        leaves.put(num.number, leaf);
+        return leaf;
+    }
+
+    /**
+     * Returns the shared node for an operator and its children, creating it if needed.
+     *
+     * @param oper The operator token.
+     * @param left The shared left child.
+     * @param right The shared right child.
+     * @return The shared operator node.
+     */
+    Expression node(Token oper, Expression left, Expression right) {
+        Key key = new Key(oper.token, left, right);
+        Expression node = nodes.get(key);
+        if (node != null) {
+            deduplicated++;
+            shared.add(node);
+            return node;
+        }
+        node = new Expression(oper, left, right);
+        nodes.put(key, node);
+        return node;
+    }
+
+    /**
+     * Evaluates an expression built with this cache, computing every shared
+     * operator node once and reusing its value wherever else it appears.
+     *
+     * @param tree The expression to evaluate.
+     * @return The evaluated result of the expression.
+     */
+    public long evaluate(Expression tree) {
+        return evaluate(tree, new IdentityHashMap<>());
+    }
+
+    /**
+     * Evaluates a subtree, using and filling the memo of shared node values.
+     *
+     * @param tree The subtree to evaluate.
+     * @param memo Values of the shared nodes computed so far in this evaluation.
+     * @return The evaluated result of the subtree.
+     */
+    private long evaluate(Expression tree, Map<Expression, Long> memo) {
+        if (tree.left == null && tree.right == null) {
+            return tree.element.getValue();
+        }
+        boolean isShared = shared.contains(tree);
+        if (isShared) {
+            Long value = memo.get(tree);
+            if (value != null) {
+                evaluationsSaved++;
+                return value;
+            }
+        }
+        long left = evaluate(tree.left, memo);
+        long right = evaluate(tree.right, memo);
+        long value = Expression.Evaluator.apply(tree.element.token, left, right);
+        if (isShared) {
+            memo.put(tree, value);
+        }
+        return value;
+    }
+
+    /**
+     * Returns the number of nodes that were reused instead of being built again.
+     *
+     * @return The number of deduplicated nodes.
+     */
+    public long deduplicated() {
+        return deduplicated;
+    }
+
+    /**
+     * Returns the number of times the value of a shared node was reused instead
+     * of evaluating its subtree again.
+     *
+     * @return The number of evaluations saved.
+     */
+    public long evaluationsSaved() {
+        return evaluationsSaved;
+    }
+
+    /**
+     * Returns the number of distinct nodes held by the cache.
+     *
+     * @return The number of distinct nodes.
+     */
+    public int size() {
+        return leaves.size() + variables.size() + nodes.size();
+    }
+}
@@ -0,0 +1,207 @@
+package project_1;
+
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import project_1.Expression.Token;
+import project_1.Expression.TokenType;
+
+/**
+ * Optimization pass over expression trees that folds constant subtrees into
+ * single leaves and removes operations with an identity operand (x + 0, 0 + x,
+ * x - 0, x * 1, 1 * x, x / 1, x ^ 1). Only with the WRAP power overflow policy,
+ * whose powers wrap exactly like repeated long multiplication, are x ^ 2 and
+ * x ^ 3 also rewritten as multiplications, and only when x is a leaf, copied so
+ * that no node ends up with two parents. Under the default SATURATE policy
+ * these powers are kept.
+ * The optimized tree evaluates exactly as the original under evaluateExpression
+ * with the overflow policy of the optimizer, including long overflow: folding
+ * uses the same arithmetic, and an operation that would throw, such as a
+ * division by zero, is left in the tree so that it still throws when the tree
+ * is evaluated.
+ * The input tree is not modified; unchanged subtrees are shared with the result.
+ */
+public class ExpressionOptimizer {
+
+    private final IntegerPower.Overflow overflow;
+    private int removed;
+
+    /**
+     * Constructs an optimizer for trees evaluated with the default overflow policy.
+     */
+    public ExpressionOptimizer() {
+        this(IntegerPower.DEFAULT_OVERFLOW);
+    }
+
+    /**
+     * Constructs an optimizer.
+     *
+     * @param overflow The overflow policy of POWER that the trees are evaluated with.
+     */
+    public ExpressionOptimizer(IntegerPower.Overflow overflow) {
+        this.overflow = overflow;
+    }
+
+    /**
+     * Optimizes an expression tree.
+     *
+     * @param tree The expression tree to optimize.
+     * @return The optimized tree.
+     */
+    public Expression optimize(Expression tree) {
+        int before = countNodes(tree);
+        Expression result = simplify(tree);
+        removed += before - countNodes(result);
+        return result;
+    }
+
+    /**
+     * Returns the number of nodes removed by this optimizer so far.
+     *
+     * @return The number of removed nodes.
+     */
+    public int removed() {
+        return removed;
+    }
+
+    /**
+     * Counts the nodes of a tree.
+     *
+     * @param tree The root of the tree.
+     * @return The number of nodes in the tree.
+     */
+    static int countNodes(Expression tree) {
+        if (tree == null) return 0;
+        return 1 + countNodes(tree.left) + countNodes(tree.right);
+    }
+
+    /**
+     * Checks if a node is a leaf.
+     *
+     * @param tree The node to check.
+     * @return true if the node has no children.
+     */
+    private static boolean isLeaf(Expression tree) {
+        return tree.left == null && tree.right == null;
+    }
+
+    /**
+     * Checks if a node is a number leaf.
+     *
+     * @param tree The node to check.
+     * @return true if the node is a leaf holding a number.
+     */
+    private static boolean isNumber(Expression tree) {
+        return isLeaf(tree) && tree.element.token == TokenType.NUMBER;
+    }
+
+    /**
+     * Checks if a node is a number leaf with the given value.
+     *
+     * @param tree The node to check.
+     * @param value The value to compare with.
+     * @return true if the node is a leaf holding value.
+     */
+    private static boolean isConstant(Expression tree, long value) {
+        return isNumber(tree) && tree.element.getValue() == value;
+    }
+
+    /**
+     * Simplifies a subtree bottom-up.
+     * x ^ 2 and x ^ 3 are strength-reduced to multiplications only under the WRAP
+     * policy and only when x is a leaf; under SATURATE a multiplication would wrap
+     * where the power clamps, so the power is kept.
+     *
+     * @param tree The subtree to simplify.
+     * @return The simplified subtree.
+     */
+    private Expression simplify(Expression tree) {
+        if (isLeaf(tree)) return tree;
+
+        Expression left = simplify(tree.left);
+        Expression right = simplify(tree.right);
+        TokenType op = tree.element.token;
+
+        if (isNumber(left) && isNumber(right)) {
+            try {
+                long value = Expression.Evaluator.apply(op, left.element.getValue(), right.element.getValue(), overflow);
+                return new Expression(new Token(value));
+            } catch (ArithmeticException e) {
+                // keep the operation so that evaluating the tree still throws
+            }
+        }
+
+        switch (op) {
+            case PLUS:
+                if (isConstant(right, 0)) return left;
+                if (isConstant(left, 0)) return right;
+                break;
+            case MINUS:
+                if (isConstant(right, 0)) return left;
+                break;
+            case TIMES:
+                if (isConstant(right, 1)) return left;
+                if (isConstant(left, 1)) return right;
+                break;
+            case DIV:
+                if (isConstant(right, 1)) return left;
+                break;
+            case POWER:
+                if (isConstant(right, 1)) return left;
+                if (overflow == IntegerPower.Overflow.WRAP && isLeaf(left)
+                    && (isConstant(right, 2) || isConstant(right, 3))) {
+                    Expression square = new Expression(Expression.getToken('*'), left, new Expression(left.element));
+                    return isConstant(right, 2) ? square
+                        : new Expression(Expression.getToken('*'), square, new Expression(left.element));
+                }
+                break;
+            default:
+                break;
+        }
+
+        if (left == tree.left && right == tree.right) return tree;
+        return new Expression(tree.element, left, right);
+    }
+
+    /**
+     * Prints every expression of the input before and after optimization.
+     * The first line states the overflow policy and whether powers are
+     * strength-reduced under it.
+     *
+     * @param args Optional -wrap to optimize for the WRAP policy, then an optional input file.
+     * @throws FileNotFoundException If the input file is not found.
+     */
+    public static void main(String[] args) throws FileNotFoundException {
+        boolean wrap = args.length > 0 && args[0].equals("-wrap");
+        int next = wrap ? 1 : 0;
+        ExpressionTokenizer in = new ExpressionTokenizer(
+            args.length > next ? new FileReader(args[next]) : new InputStreamReader(System.in)
+        );
+        IntegerPower.Overflow overflow = wrap ? IntegerPower.Overflow.WRAP : IntegerPower.DEFAULT_OVERFLOW;
+        ExpressionOptimizer optimizer = new ExpressionOptimizer(overflow);
+
+        System.out.println("Overflow policy: " + overflow + (overflow == IntegerPower.Overflow.WRAP
+            ? " (x ^ 2 and x ^ 3 with a leaf x are rewritten as multiplications)"
+            : " (x ^ 2 and x ^ 3 are kept; they are rewritten only with -wrap)"));
+        System.out.println();
+
+        int count = 0;
+        List<Token> infix = new ArrayList<>();
+        while (in.nextLine(infix)) {
+            if (infix.isEmpty()) continue;
+
+            count++;
+            Expression exp = Expression.infixToExpression(infix);
+            Expression optimized = optimizer.optimize(exp);
+            System.out.println("Expression number: " + count);
+            System.out.println("Infix: " + Expression.toInfixString(exp));
+            System.out.println("Optimized: " + Expression.toInfixString(optimized));
+            System.out.println();
+        }
+        in.close();
+        System.out.println("Nodes removed: " + optimizer.removed());
+    }
+}
@@ -0,0 +1,292 @@
+package project_1;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import project_1.Expression.Token;
+import project_1.Expression.TokenType;
+
+/**
+ * Streaming tokenizer for infix expressions, one expression per line.
+ * Reads a Reader or a ByteBuffer character by character and produces tokens
+ * directly, without Scanner or intermediate Strings. Tokens are separated by
+ * white space, as with {@link Expression#getToken(String)}; operators and
+ * parentheses are returned as shared instances and numbers are parsed in place.
+ * A number token keeps its source text when it differs from the printed value,
+ * as in "+5" or "007".
+ * Tokens starting with a letter or '_' are variables.
+ *
+ * Usage:
+ *     while (tokenizer.nextLine()) {
+ *         for (Token t = tokenizer.next(); t != null; t = tokenizer.next()) { ... }
+ *     }
+ */
+public class ExpressionTokenizer implements Closeable {
+
+    private static final int EOF = -1;
+
+    private final Reader reader;
+    private final char[] buffer;
+    private final ByteBuffer bytes;
+    private int pos, limit;
+
+    private int ch; // next unconsumed character, or EOF
+    private boolean started, lineEnded;
+    private int lineNumber;
+    private Token operator; // last operator read
+    private long number; // last number read
+    private final StringBuilder text = new StringBuilder(); // source text of the last number
+    private boolean canonical; // whether the text is the printed value of the number
+    private Token variable; // last variable read
+
+    /**
+     * Creates a tokenizer reading characters from a Reader.
+     *
+     * @param reader The source of the expressions.
+     */
+    public ExpressionTokenizer(Reader reader) {
+        this.reader = reader;
+        this.buffer = new char[1 << 16];
+        this.bytes = null;
+    }
+
+    /**
+     * Creates a tokenizer reading ASCII bytes from a buffer, for example a mapped file.
+     * The tokenizer consumes the buffer from its position to its limit.
+     *
+     * @param bytes The source of the expressions.
+     */
+    public ExpressionTokenizer(ByteBuffer bytes) {
+        this.reader = null;
+        this.buffer = null;
+        this.bytes = bytes;
+    }
+
+    /**
+     * Reads the next character of the input.
+     *
+     * @return The next character, or EOF at the end of the input.
+     */
+    private int read() {
+        if (bytes != null) {
+            return bytes.hasRemaining() ? bytes.get() & 0xff : EOF;
+        }
+        if (pos == limit) {
+            try {
+                limit = reader.read(buffer, 0, buffer.length);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            pos = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return EOF;
+            }
+        }
+        return buffer[pos++];
+    }
+
+    /**
+     * Advances to the next line of the input, skipping what is left of the current one.
+     *
+     * @return true if there is another line, false at the end of the input.
+     */
+    public boolean nextLine() {
+        if (!started) {
+            started = true;
+            ch = read();
+        } else {
+            while (ch != '\n' && ch != EOF) {
+                ch = read();
+            }
+            if (ch == EOF) return false;
+            ch = read();
+        }
+        if (ch == EOF) return false;
+        lineEnded = false;
+        lineNumber++;
+        return true;
+    }
+
+    /**
+     * Advances to the next line and collects its tokens.
+     *
+     * @param out List that is cleared and filled with the tokens of the line.
+     * @return true if a line was read, false at the end of the input.
+     */
+    public boolean nextLine(List<Token> out) {
+        out.clear();
+        if (!nextLine()) return false;
+        for (Token t = next(); t != null; t = next()) {
+            out.add(t);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of the current line, starting at 1.
+     *
+     * @return The current line number.
+     */
+    public int lineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Checks if a character ends a token.
+     *
+     * @param c The character to check.
+     * @return true if c is white space or the end of the input.
+     */
+    private static boolean isDelimiter(int c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\n' || c == EOF;
+    }
+
+    /**
+     * Returns the next token of the current line.
+     *
+     * @return The next token, or null at the end of the line.
+     * @throws NumberFormatException If a token is neither an operator nor a valid long.
+     */
+    public Token next() {
+        TokenType type = nextType();
+        if (type == null) return null;
+        if (type == TokenType.NUMBER) return canonical ? new Token(number) : new Token(text.toString());
+        return type == TokenType.VARIABLE ? variable : operator;
+    }
+
+    /**
+     * Reads the next token of the current line without creating a Token for numbers.
+     * The value of a NUMBER is then available from {@link #number()}.
+     *
+     * @return The type of the next token, or null at the end of the line.
+     * @throws NumberFormatException If a token is neither an operator nor a valid long.
+     */
+    public TokenType nextType() {
+        if (lineEnded) return null;
+        while (ch == ' ' || ch == '\t' || ch == '\r') {
+            ch = read();
+        }
+        if (ch == '\n' || ch == EOF) {
+            lineEnded = true;
+            return null;
+        }
+
+        int first = ch;
+        ch = read();
+        if (isDelimiter(ch)) {
+            Token op = Expression.getToken((char) first);
+            if (op != null) {
+                operator = op;
+                return op.token;
+            }
+        }
+        if (Expression.isVariableStart(first)) {
+            variable = parseVariable(first);
+            return TokenType.VARIABLE;
+        }
+        number = parseNumber(first);
+        return TokenType.NUMBER;
+    }
+
+    /**
+     * Returns the token of the last VARIABLE read by {@link #nextType()}.
+     *
+     * @return The variable token.
+     */
+    public Token variable() {
+        return variable;
+    }
+
+    /**
+     * Parses the rest of a variable name.
+     *
+     * @param first The first character of the name, already consumed.
+     * @return The variable token.
+     */
+    private Token parseVariable(int first) {
+        StringBuilder name = new StringBuilder();
+        name.append((char) first);
+        while (!isDelimiter(ch)) {
+            name.append((char) ch);
+            ch = read();
+        }
+        return Token.variable(name.toString());
+    }
+
+    /**
+     * Returns the value of the last NUMBER read by {@link #nextType()}.
+     *
+     * @return The value of the number.
+     */
+    public long number() {
+        return number;
+    }
+
+    /**
+     * Parses the rest of a number token, with the same rules as Long.parseLong.
+     * The value is accumulated as a negative number so that Long.MIN_VALUE can be read.
+     * The source text is kept, and noted as canonical if it has no '+' sign and no
+     * redundant zero.
+     *
+     * @param first The first character of the token, already consumed.
+     * @return The value of the number.
+     * @throws NumberFormatException If the token is not a valid long.
+     */
+    private long parseNumber(int first) {
+        boolean negative = first == '-';
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long result = 0;
+        int c = first;
+        text.setLength(0);
+        if (first == '-' || first == '+') {
+            if (isDelimiter(ch)) throw invalidNumber();
+            text.append((char) first);
+            c = ch;
+            ch = read();
+        }
+        int start = text.length();
+        while (true) {
+            text.append((char) c);
+            int digit = c - '0';
+            if (digit < 0 || digit > 9 || result < limit / 10) throw invalidNumber();
+            result *= 10;
+            if (result < limit + digit) throw invalidNumber();
+            result -= digit;
+            if (isDelimiter(ch)) break;
+            c = ch;
+            ch = read();
+        }
+        canonical = first != '+' && (text.charAt(start) != '0' || text.length() == 1);
+        return negative ? result : -result;
+    }
+
+    /**
+     * Builds the exception for an invalid number token, skipping the rest of the token.
+     *
+     * @return The exception to throw.
+     */
+    private NumberFormatException invalidNumber() {
+        while (!isDelimiter(ch)) {
+            ch = read();
+        }
+        return new NumberFormatException("Invalid number on line " + lineNumber);
+    }
+
+    /**
+     * Closes the underlying Reader, if any.
+     */
+    @Override
+    public void close() {
+        if (reader == null) return;
+        try {
+            reader.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package project_1;
+
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import project_1.Expression.Token;
+import project_1.Expression.TokenType;
+
+/**
+ * Compact struct-of-arrays representation of an expression tree.
+ * Node i is described by op[i], left[i], right[i] and value[i] instead of an
+ * Expression object and a Token object, which saves the object headers and the
+ * references of both; main measures the heap per node of each form. Nodes are
+ * created by the parser in postfix order, so children always come before their
+ * parent, the root is the last node, and evaluation is one loop.
+ * Evaluation stores the value of every operator node in value[], so one instance
+ * must not be evaluated by several threads at the same time.
+ */
+public class FlatExpression {
+
+    /** op of a leaf node; operator nodes hold the ordinal of their TokenType. */
+    static final byte LEAF = -1;
+
+    private static final TokenType[] TYPES = TokenType.values();
+
+    byte[] op;
+    int[] left, right;
+    long[] value;
+    int size;
+
+    /**
+     * Creates an empty expression with room for the given number of nodes.
+     *
+     * @param capacity Initial number of nodes.
+     */
+    private FlatExpression(int capacity) {
+        op = new byte[capacity];
+        left = new int[capacity];
+        right = new int[capacity];
+        value = new long[capacity];
+    }
+
+    /**
+     * Appends a node, growing the arrays by half when they are full.
+     *
+     * @param o The op of the node.
+     * @param l The index of the left child.
+     * @param r The index of the right child.
+     * @param v The value of a leaf.
+     * @return The index of the new node.
+     */
+    private int add(byte o, int l, int r, long v) {
+        if (size == op.length) {
+            int capacity = size + (size >> 1) + 16;
+            op = Arrays.copyOf(op, capacity);
+            left = Arrays.copyOf(left, capacity);
+            right = Arrays.copyOf(right, capacity);
+            value = Arrays.copyOf(value, capacity);
+        }
+        op[size] = o;
+        left[size] = l;
+        right[size] = r;
+        value[size] = v;
+        return size++;
+    }
+
+    /**
+     * Operand stack of node indices for the shunting-yard algorithm of
+     * {@link Expression#infixToExpression(List)}, which it shares through
+     * Expression.ShuntingYard.
+     */
+    private static class Parser extends Expression.ShuntingYard {
+
+        final FlatExpression exp = new FlatExpression(64);
+        int[] nodes = new int[16];
+        int nodeTop;
+
+        /**
+         * Pushes the index of a subtree.
+         *
+         * @param node The index of the node.
+         */
+        void pushNode(int node) {
+            if (nodeTop == nodes.length) nodes = Arrays.copyOf(nodes, 2 * nodeTop);
+            nodes[nodeTop++] = node;
+        }
+
+        /**
+         * Joins the two top subtrees under a new node.
+         *
+         * @param op The operator of the node.
+         */
+        @Override
+        void reduce(TokenType op) {
+            int r = nodes[--nodeTop];
+            int l = nodes[--nodeTop];
+            pushNode(exp.add((byte) op.ordinal(), l, r, 0));
+        }
+
+        /**
+         * Handles one token of the infix expression.
+         *
+         * @param type The type of the token.
+         * @param number The value of a NUMBER token.
+         */
+        void token(TokenType type, long number) {
+            if (type == TokenType.NUMBER) {
+                pushNode(exp.add(LEAF, -1, -1, number));
+            } else if (type == TokenType.VARIABLE) {
+                throw new IllegalArgumentException("Variables are not supported by FlatExpression");
+            } else {
+                operator(type);
+            }
+        }
+
+        /**
+         * Applies the pending operators and trims the arrays.
+         *
+         * @return The parsed expression.
+         */
+        FlatExpression finish() {
+            finishOperators();
+            exp.trim();
+            return exp;
+        }
+    }
+
+    /**
+     * Converts an infix expression represented as a list of tokens to a flat expression.
+     *
+     * @param exp The list of tokens representing the infix expression.
+     * @return The flat expression.
+     */
+    public static FlatExpression fromInfix(List<Token> exp) {
+        Parser parser = new Parser();
+        for (Token token : exp) {
+            parser.token(token.token, token.number);
+        }
+        return parser.finish();
+    }
+
+    /**
+     * Converts the rest of the current line of a tokenizer to a flat expression,
+     * without creating any Token or Expression objects.
+     *
+     * @param in Tokenizer positioned on the line to convert.
+     * @return The flat expression.
+     */
+    public static FlatExpression fromInfix(ExpressionTokenizer in) {
+        Parser parser = new Parser();
+        for (TokenType type = in.nextType(); type != null; type = in.nextType()) {
+            parser.token(type, type == TokenType.NUMBER ? in.number() : 0);
+        }
+        return parser.finish();
+    }
+
+    /**
+     * Shrinks the arrays to the number of nodes.
+     */
+    private void trim() {
+        op = Arrays.copyOf(op, size);
+        left = Arrays.copyOf(left, size);
+        right = Arrays.copyOf(right, size);
+        value = Arrays.copyOf(value, size);
+    }
+
+    /**
+     * Returns the number of nodes.
+     *
+     * @return The number of nodes.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Evaluates the expression. Children come before their parent, so one pass
+     * in index order computes every node.
+     *
+     * @return The evaluated result of the expression.
+     */
+    public long evaluate() {
+        final byte[] op = this.op;
+        final int[] left = this.left, right = this.right;
+        final long[] value = this.value;
+        for (int i = 0; i < size; i++) {
+            if (op[i] != LEAF) {
+                value[i] = Expression.Evaluator.apply(TYPES[op[i]], value[left[i]], value[right[i]]);
+            }
+        }
+        return value[size - 1];
+    }
+
+    /**
+     * Prints the expression in postfix order, which is the order of the nodes.
+     *
+     * @return The postfix expression, with tokens separated by spaces.
+     */
+    public String toPostfixString() {
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            if (i > 0) out.append(' ');
+            if (op[i] == LEAF) {
+                out.append(value[i]);
+            } else {
+                out.append(symbol(TYPES[op[i]]));
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Returns the character of an operator.
+     *
+     * @param type The operator.
+     * @return Its character.
+     * @throws IllegalArgumentException If the type is not an operator.
+     */
+    private static char symbol(TokenType type) {
+        return switch (type) {
+            case PLUS -> '+';
+            case TIMES -> '*';
+            case MINUS -> '-';
+            case DIV -> '/';
+            case MOD -> '%';
+            case POWER -> '^';
+            default -> throw new IllegalArgumentException("Not an operator: " + type);
+        };
+    }
+
+    /**
+     * Builds a random expression of + - * with the given number of operands.
+     *
+     * @param operands The number of operands.
+     * @return The infix expression, with tokens separated by spaces.
+     */
+    static String randomInfix(int operands) {
+        Random random = new Random(1);
+        StringBuilder s = new StringBuilder();
+        for (int i = 0; i < operands; i++) {
+            if (i > 0) s.append(' ').append("+-*".charAt(random.nextInt(3))).append(' ');
+            s.append(random.nextInt(1000));
+        }
+        return s.append('\n').toString();
+    }
+
+    /**
+     * Returns the heap in use after a full collection, as reported by the memory MXBean.
+     *
+     * @return Used heap in bytes.
+     */
+    static long heapAfterGc() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        memory.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * Reports the memory per node of an Expression tree and of a FlatExpression
+     * for the same generated expression, and checks that both evaluate the same.
+     *
+     * @param args Optional number of operands.
+     */
+    public static void main(String[] args) {
+        int operands = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        String text = randomInfix(operands);
+
+        long before = heapAfterGc();
+        List<Token> infix = new ArrayList<>();
+        new ExpressionTokenizer(new StringReader(text)).nextLine(infix);
+        Expression tree = Expression.infixToExpression(infix);
+        infix = null;
+        long treeBytes = heapAfterGc() - before;
+
+        before = heapAfterGc();
+        ExpressionTokenizer in = new ExpressionTokenizer(new StringReader(text));
+        in.nextLine();
+        FlatExpression flat = fromInfix(in);
+        long flatBytes = heapAfterGc() - before;
+
+        int nodes = flat.size();
+        System.out.println("Nodes: " + nodes);
+        System.out.printf("Expression tree: %.1f bytes/node%n", (double) treeBytes / nodes);
+        System.out.printf("FlatExpression: %.1f bytes/node%n", (double) flatBytes / nodes);
+        System.out.println("Same value: " + (flat.evaluate() == Expression.evaluateIterative(tree)));
+    }
+}
@@ -0,0 +1,245 @@
+package project_1;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+
+import project_1.Expression.Token;
+import project_1.Expression.TokenType;
+
+/**
+ * Long-lived expression whose leaves can be updated one at a time.
+ * Every node caches the value of its subtree and links to its parent. Changing a
+ * leaf marks the path from it to the root dirty, and reading the value recomputes
+ * only the dirty nodes, so an update costs O(depth) instead of O(n).
+ * Leaves are numbered from 0 in left to right order. Variables have no value to
+ * start from, so a tree with a VARIABLE leaf is rejected; set() gives leaves new values.
+ * Traversals use explicit stacks, so trees of any depth are supported.
+ */
+public class IncrementalExpression {
+
+    /**
+     * Node with a cached value, a dirty flag and a parent link.
+     */
+    static class Node {
+
+        final TokenType op; // null for a leaf
+        Node left, right, parent;
+        long value;
+        boolean dirty;
+
+        /**
+         * Constructs a node.
+         *
+         * @param op The operator, or null for a leaf.
+         * @param value The value of a leaf.
+         */
+        Node(TokenType op, long value) {
+            this.op = op;
+            this.value = value;
+            this.dirty = op != null;
+        }
+    }
+
+    private final Node root;
+    private final Node[] leaves;
+
+    /**
+     * Builds an incremental expression from an expression tree.
+     * Every node starts dirty, so the first call to value() evaluates the whole tree.
+     *
+     * @param tree The expression tree.
+     * @throws IllegalArgumentException If the tree has a VARIABLE leaf.
+     */
+    public IncrementalExpression(Expression tree) {
+        List<Node> leafList = new ArrayList<>();
+        // built[i] is the node created for the operator at depth i of the traversal stack
+        Node[] built = new Node[64];
+        Node top = null;
+        Expression.TraversalStack stack = new Expression.TraversalStack();
+        stack.push(tree, Expression.BEFORE_LEFT);
+        while (stack.top > 0) {
+            int i = stack.top - 1;
+            Expression e = stack.nodes[i];
+            if (stack.state[i] == Expression.BEFORE_RIGHT) {
+                stack.state[i] = Expression.AFTER_RIGHT;
+                stack.push(e.right, Expression.BEFORE_LEFT);
+                continue;
+            }
+            if (stack.state[i] == Expression.AFTER_RIGHT) {
+                stack.top--;
+                continue;
+            }
+
+            // first visit: nodes are created in pre-order, so leaves are met left to right
+            boolean leaf = e.left == null && e.right == null;
+            Node node;
+            if (leaf) {
+                Token t = e.element;
+                if (t.token == TokenType.VARIABLE) {
+                    throw new IllegalArgumentException("Unbound variable: " + t.string);
+                }
+                node = new Node(null, t.getValue());
+                leafList.add(node);
+            } else {
+                node = new Node(e.element.token, 0);
+            }
+            if (i == 0) {
+                top = node;
+                node.parent = null;
+            } else {
+                Node parent = built[i - 1];
+                node.parent = parent;
+                // the parent is in BEFORE_RIGHT while its left subtree is being built
+                if (stack.state[i - 1] == Expression.BEFORE_RIGHT) parent.left = node;
+                else parent.right = node;
+            }
+            if (leaf) {
+                stack.top--;
+            } else {
+                if (i == built.length) built = Arrays.copyOf(built, 2 * i);
+                built[i] = node;
+                stack.state[i] = Expression.BEFORE_RIGHT;
+                stack.push(e.left, Expression.BEFORE_LEFT);
+            }
+        }
+        root = top;
+        leaves = leafList.toArray(new Node[0]);
+    }
+
+    /**
+     * Returns the number of leaves.
+     *
+     * @return The number of leaves.
+     */
+    public int leafCount() {
+        return leaves.length;
+    }
+
+    /**
+     * Returns the current value of a leaf.
+     *
+     * @param leaf The index of the leaf, in left to right order.
+     * @return The value of the leaf.
+     */
+    public long get(int leaf) {
+        return leaves[leaf].value;
+    }
+
+    /**
+     * Changes the value of a leaf and marks its ancestors dirty.
+     * Marking stops at the first ancestor already dirty, since the path above it is dirty too.
+     *
+     * @param leaf The index of the leaf, in left to right order.
+     * @param value The new value.
+     */
+    public void set(int leaf, long value) {
+        Node node = leaves[leaf];
+        node.value = value;
+        for (Node p = node.parent; p != null && !p.dirty; p = p.parent) {
+            p.dirty = true;
+        }
+    }
+
+    /**
+     * Returns the value of the expression, recomputing only the dirty nodes.
+     *
+     * @return The value of the expression.
+     */
+    public long value() {
+        if (!root.dirty) return root.value;
+        // dirty nodes form paths from the root; visit them in post-order
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Node node = stack.peek();
+            if (node.left.dirty) {
+                stack.push(node.left);
+            } else if (node.right.dirty) {
+                stack.push(node.right);
+            } else {
+                node.value = Expression.Evaluator.apply(node.op, node.left.value, node.right.value);
+                node.dirty = false;
+                stack.pop();
+            }
+        }
+        return root.value;
+    }
+
+    /**
+     * Recomputes the value of every node, ignoring the cached values.
+     * This is the O(n) cost that value() avoids.
+     *
+     * @return The value of the expression.
+     */
+    public long evaluateAll() {
+        for (Node leaf : leaves) {
+            for (Node p = leaf.parent; p != null && !p.dirty; p = p.parent) {
+                p.dirty = true;
+            }
+        }
+        return value();
+    }
+
+    /**
+     * Builds a random balanced tree of +, - and * operators.
+     *
+     * @param leaves Number of leaves.
+     * @param random Source of operators and leaf values.
+     * @param leafNodes Receives the leaves, in left to right order.
+     * @return The expression tree.
+     */
+    static Expression randomTree(int leaves, Random random, List<Expression> leafNodes) {
+        if (leaves == 1) {
+            Expression leaf = new Expression(new Token(random.nextInt(100)));
+            leafNodes.add(leaf);
+            return leaf;
+        }
+        Token op = Expression.getToken("+-*".charAt(random.nextInt(3)));
+        Expression left = randomTree(leaves / 2, random, leafNodes);
+        return new Expression(op, left, randomTree(leaves - leaves / 2, random, leafNodes));
+    }
+
+    /**
+     * Benchmark: random single-leaf updates on a tree of about 10^6 nodes,
+     * incremental against full re-evaluation.
+     *
+     * @param args Optional number of leaves and number of updates.
+     */
+    public static void main(String[] args) {
+        int leafCount = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        int updates = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        Random random = new Random(1);
+        List<Expression> leafNodes = new ArrayList<>();
+        Expression tree = randomTree(leafCount, random, leafNodes);
+        IncrementalExpression exp = new IncrementalExpression(tree);
+        System.out.println("Nodes: " + (2 * leafCount - 1) + " Value: " + exp.value());
+
+        long start = System.nanoTime();
+        long sink = 0;
+        for (int i = 0; i < updates; i++) {
+            exp.set(random.nextInt(leafCount), random.nextInt(100));
+            sink += exp.value();
+        }
+        long incremental = System.nanoTime() - start;
+
+        int fullUpdates = Math.max(1, updates / 1000);
+        start = System.nanoTime();
+        for (int i = 0; i < fullUpdates; i++) {
+            exp.set(random.nextInt(leafCount), random.nextInt(100));
+            sink += exp.evaluateAll();
+        }
+        long full = System.nanoTime() - start;
+
+        for (int i = 0; i < leafCount; i++) {
+            leafNodes.get(i).element = new Token(exp.get(i));
+        }
+        System.out.printf("Incremental: %.0f ns/update Full: %.0f ns/update Speedup: %.0fx (%d)%n",
+            (double) incremental / updates, (double) full / fullUpdates,
+            ((double) full / fullUpdates) / ((double) incremental / updates), sink & 1);
+        System.out.println("Same as evaluateExpression: " + (exp.value() == Expression.evaluateExpression(tree)));
+    }
+}
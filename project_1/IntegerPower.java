@@ -0,0 +1,226 @@
+package project_1;
+
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import project_1.Expression.Token;
+import project_1.Expression.TokenType;
+
+/**
+ * Exact integer exponentiation for the POWER operator, by repeated squaring.
+ * Replaces (long) Math.pow, which rounds through double above 2^53.
+ * What happens when the result does not fit in a long is set by an overflow policy.
+ * Negative exponents keep the integer truncation of (long) Math.pow:
+ * 1 and -1 give 1 or -1, 0 overflows, and any other base gives 0.
+ */
+public class IntegerPower {
+
+    /**
+     * What to do when a power does not fit in a long.
+     */
+    public enum Overflow {
+        /** Keep the low 64 bits of the exact result, like long multiplication. */
+        WRAP,
+        /** Clamp to Long.MAX_VALUE or Long.MIN_VALUE, like (long) Math.pow. */
+        SATURATE,
+        /** Throw an ArithmeticException. */
+        THROW,
+        /**
+         * Throw an ArithmeticException from the long methods, so that a caller
+         * able to hold a BigInteger redoes the operation with {@link #powBig}.
+         */
+        PROMOTE,
+    }
+
+    /**
+     * Policy used by the evaluators of Expression unless they are given another.
+     * Same results as (long) Math.pow where it was exact.
+     */
+    public static final Overflow DEFAULT_OVERFLOW = Overflow.SATURATE;
+
+    /**
+     * Raises base to the power exponent, with the default overflow policy.
+     *
+     * @param base The base.
+     * @param exponent The exponent.
+     * @return base ^ exponent, handled as set by {@link #DEFAULT_OVERFLOW} if it does not fit in a long.
+     */
+    public static long pow(long base, long exponent) {
+        return pow(base, exponent, DEFAULT_OVERFLOW);
+    }
+
+    /**
+     * Raises base to the power exponent.
+     *
+     * @param base The base.
+     * @param exponent The exponent.
+     * @param policy What to do if the result does not fit in a long.
+     * @return base ^ exponent, handled as set by policy if it does not fit in a long.
+     * @throws ArithmeticException On overflow, with the THROW and PROMOTE policies.
+     */
+    public static long pow(long base, long exponent, Overflow policy) {
+        if (exponent < 0) {
+            if (base == 1) return 1;
+            if (base == -1) return (exponent & 1) == 0 ? 1 : -1;
+            if (base == 0) return overflow(policy, 0, false);
+            return 0;
+        }
+        if (policy == Overflow.WRAP) {
+            return wrappingPow(base, exponent);
+        }
+
+        long result = 1;
+        long b = base;
+        long e = exponent;
+        while (true) {
+            if ((e & 1) != 0) {
+                long r = result * b;
+                if (Math.multiplyHigh(result, b) != (r >> 63)) {
+                    return overflow(policy, base, (exponent & 1) != 0);
+                }
+                result = r;
+            }
+            e >>= 1;
+            if (e == 0) return result;
+            // b * b overflowing means the result overflows too, since a higher bit of e is set
+            long square = b * b;
+            if (Math.multiplyHigh(b, b) != (square >> 63)) {
+                return overflow(policy, base, (exponent & 1) != 0);
+            }
+            b = square;
+        }
+    }
+
+    /**
+     * Raises base to the power exponent modulo 2^64.
+     *
+     * @param base The base.
+     * @param exponent The non-negative exponent.
+     * @return The low 64 bits of base ^ exponent.
+     */
+    private static long wrappingPow(long base, long exponent) {
+        long result = 1;
+        long b = base;
+        for (long e = exponent; e != 0; e >>= 1) {
+            if ((e & 1) != 0) result *= b;
+            b *= b;
+        }
+        return result;
+    }
+
+    /**
+     * Handles a power that does not fit in a long.
+     *
+     * @param policy The overflow policy, other than WRAP.
+     * @param base The base of the power.
+     * @param oddExponent Whether the exponent is odd.
+     * @return The saturated result.
+     * @throws ArithmeticException With the THROW and PROMOTE policies.
+     */
+    private static long overflow(Overflow policy, long base, boolean oddExponent) {
+        if (policy == Overflow.THROW || policy == Overflow.PROMOTE) {
+            throw new ArithmeticException("long overflow");
+        }
+        return base < 0 && oddExponent ? Long.MIN_VALUE : Long.MAX_VALUE;
+    }
+
+    /**
+     * Raises base to the power exponent exactly.
+     *
+     * @param base The base.
+     * @param exponent The exponent.
+     * @return base ^ exponent.
+     * @throws ArithmeticException If base is 0 and exponent is negative, or the result is too large to compute.
+     */
+    public static BigInteger powBig(BigInteger base, long exponent) {
+        if (exponent < 0) {
+            if (base.signum() == 0) throw new ArithmeticException("zero to a negative power");
+            if (base.abs().equals(BigInteger.ONE)) {
+                return (exponent & 1) == 0 ? BigInteger.ONE : base;
+            }
+            return BigInteger.ZERO;
+        }
+        if (base.abs().compareTo(BigInteger.ONE) <= 0) {
+            if (exponent == 0) return BigInteger.ONE;
+            return (exponent & 1) != 0 ? base : base.multiply(base);
+        }
+        if (exponent > Integer.MAX_VALUE) throw new ArithmeticException("BigInteger would overflow supported range");
+        return base.pow((int) exponent);
+    }
+
+    /**
+     * Collects the operands of every POWER operation in an expression tree.
+     *
+     * @param tree The expression tree.
+     * @param out List that receives base and exponent pairs.
+     * @return The value of the tree.
+     */
+    private static long collect(Expression tree, List<long[]> out) {
+        if (tree.left == null && tree.right == null) {
+            return tree.element.getValue();
+        }
+        long left = collect(tree.left, out);
+        long right = collect(tree.right, out);
+        if (tree.element.token == TokenType.POWER) {
+            out.add(new long[] {left, right});
+        }
+        return Expression.Evaluator.apply(tree.element.token, left, right);
+    }
+
+    /**
+     * Benchmark: times (long) Math.pow against pow on the POWER operations of an
+     * expression file, and reports how many results differ.
+     *
+     * @param args Input file, optionally followed by the number of timed repetitions.
+     * @throws FileNotFoundException If the input file is not found.
+     */
+    public static void main(String[] args) throws FileNotFoundException {
+        ExpressionTokenizer in = new ExpressionTokenizer(new FileReader(args[0]));
+        int reps = args.length > 1 ? Integer.parseInt(args[1]) : 10_000_000;
+
+        List<long[]> pairs = new ArrayList<>();
+        List<Token> infix = new ArrayList<>();
+        while (in.nextLine(infix)) {
+            if (!infix.isEmpty()) collect(Expression.infixToExpression(infix), pairs);
+        }
+        in.close();
+        if (pairs.isEmpty()) {
+            System.out.println("No POWER operations in input");
+            return;
+        }
+
+        long[] base = new long[pairs.size()];
+        long[] exponent = new long[pairs.size()];
+        int differ = 0;
+        for (int i = 0; i < base.length; i++) {
+            base[i] = pairs.get(i)[0];
+            exponent[i] = pairs.get(i)[1];
+            if ((long) Math.pow(base[i], exponent[i]) != pow(base[i], exponent[i])) differ++;
+            System.out.println(base[i] + " ^ " + exponent[i] + " = " + pow(base[i], exponent[i]));
+        }
+
+        for (int round = 0; round < 3; round++) {
+            long sink = 0;
+            long start = System.nanoTime();
+            for (int r = 0; r < reps; r++) {
+                int i = r % base.length;
+                sink += (long) Math.pow(base[i], exponent[i]);
+            }
+            long mathTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int r = 0; r < reps; r++) {
+                int i = r % base.length;
+                sink += pow(base[i], exponent[i]);
+            }
+            long powTime = System.nanoTime() - start;
+
+            System.out.printf("Math.pow: %.2f ns IntegerPower: %.2f ns Speedup: %.2fx (%d)%n",
+                (double) mathTime / reps, (double) powTime / reps, (double) mathTime / powTime, sink & 1);
+        }
+        System.out.println("Results that differ from Math.pow: " + differ + " of " + base.length);
+    }
+}
@@ -1,5 +1,11 @@
 package project_2;
 
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
 /**
  * AVL Tree implementation extending BinarySearchTree.
  * Balances itself to maintain O(log n) height after insertions and deletions.
@@ -8,12 +14,13 @@ package project_2;
 public class AVLTree<T extends Comparable<? super T>> extends BinarySearchTree<T> {
 
     /**
-     * Node in AVL tree with a height attribute.
+     * Node in AVL tree with a height attribute and the number of nodes in its subtree.
      * @param <T> Type of the element.
      */
     static class Entry<T> extends BinarySearchTree.Entry<T> {
 
         int height;
+        int size;
 
         /**
          * Constructs an AVL tree node.
@@ -24,6 +31,7 @@ public class AVLTree<T extends Comparable<? super T>> extends BinarySearchTree<T
         Entry(T x, Entry<T> left, Entry<T> right) {
             super(x, left, right);
             height = 0;
+            size = 1 + getSize(left) + getSize(right);
         }
     }
 
@@ -52,13 +60,14 @@ public class AVLTree<T extends Comparable<? super T>> extends BinarySearchTree<T
 
     /**
      * Adds an element, balancing the tree if necessary.
+     * super.add leaves the ancestors of the new node on the stack, so the
+     * search is done only once.
      * @param x Element to add
      * @return True if the element was added, false if it already exists
      */
     @Override
     public boolean add(T x) {
         if (super.add(x)) {
-            find(x);
             balanceTree();
             return true;
         }
@@ -79,42 +88,52 @@ public class AVLTree<T extends Comparable<? super T>> extends BinarySearchTree<T
     }
 
     /**
-     * Balances the AVL tree from the node to the root.
+     * Balances the AVL tree from the node on top of the stack up to the root.
+     * Rebalancing stops as soon as a subtree keeps the height it had before the
+     * update, since the heights and balance factors above it are then unchanged;
+     * the subtree sizes above it still change, so the rest of the path is only resized.
      */
     private void balanceTree() {
+        boolean balancing = true;
         while (!stack.isEmpty()) {
             Entry<T> node = (Entry<T>) stack.pop();
+            if (!balancing) {
+                updateSize(node);
+                continue;
+            }
+            int oldHeight = node.height;
             updateHeight(node);
             int balance = getBalance(node);
+            Entry<T> top = node;
 
             if (balance > 1) {
-                if (getBalance((Entry<T>) node.left) >= 0) {
-                    node = rightRotate(node);
-                } else {
+                if (getBalance((Entry<T>) node.left) < 0) {
                     node.left = leftRotate((Entry<T>) node.left);
-                    node = rightRotate(node);
                 }
-            }
-
-            if (balance < -1) {
-                if (getBalance((Entry<T>) node.right) <= 0) {
-                    node = leftRotate(node);
-                } else {
+                top = rightRotate(node);
+            } else if (balance < -1) {
+                if (getBalance((Entry<T>) node.right) > 0) {
                     node.right = rightRotate((Entry<T>) node.right);
-                    node = leftRotate(node);
                 }
+                top = leftRotate(node);
             }
 
-            if (stack.isEmpty()) {
-                root = node;
-            } else {
-                Entry<T> parent = (Entry<T>) stack.peek();
-                if (parent.element.compareTo(node.element) > 0) {
-                    parent.left = node;
+            if (top != node) {
+                if (stack.isEmpty()) {
+                    root = top;
                 } else {
-                    parent.right = node;
+                    Entry<T> parent = (Entry<T>) stack.peek();
+                    if (parent.left == node) {
+                        parent.left = top;
+                    } else {
+                        parent.right = top;
+                    }
                 }
             }
+
+            if (top.height == oldHeight) {
+                balancing = false;
+            }
         }
     }
 
@@ -128,12 +147,92 @@ public class AVLTree<T extends Comparable<? super T>> extends BinarySearchTree<T
     }
 
     /**
-     * Updates the height of a node.
+     * Updates the height and the subtree size of a node.
      * @param node Node to update
      */
     private void updateHeight(Entry<T> node) {
         node.height = 1 +
         Math.max(getHeight((Entry<T>) node.left), getHeight((Entry<T>) node.right));
+        updateSize(node);
+    }
+
+    /**
+     * Gets the number of nodes in a subtree.
+     * @param node Root of the subtree
+     * @return Size of the subtree, 0 for null
+     */
+    private static int getSize(BinarySearchTree.Entry<?> node) {
+        return (node == null) ? 0 : ((Entry<?>) node).size;
+    }
+
+    /**
+     * Updates the subtree size of a node from its children.
+     * @param node Node to update
+     */
+    private void updateSize(Entry<T> node) {
+        node.size = 1 + getSize(node.left) + getSize(node.right);
+    }
+
+    /**
+     * Counts the keys smaller than x, or no bigger than x.
+     * @param x Key to compare with
+     * @param inclusive True to also count a key equal to x
+     * @return Number of keys below x (or up to x)
+     */
+    private int countBelow(T x, boolean inclusive) {
+        int count = 0;
+        BinarySearchTree.Entry<T> t = root;
+        while (t != null) {
+            int cmp = x.compareTo(t.element);
+            if (cmp < 0 || (cmp == 0 && !inclusive)) {
+                t = t.left;
+            } else {
+                count += 1 + getSize(t.left);
+                t = t.right;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Counts the keys no bigger than x, in O(log n).
+     * @param x Key to compare with
+     * @return Number of keys less than or equal to x
+     */
+    public int rank(T x) {
+        return countBelow(x, true);
+    }
+
+    /**
+     * Finds the k-th smallest key, in O(log n).
+     * @param k Position of the key, from 1 to size
+     * @return The k-th smallest key, or null if k is out of range
+     */
+    public T select(int k) {
+        if (k < 1 || k > size) return null;
+        BinarySearchTree.Entry<T> t = root;
+        while (true) {
+            int leftSize = getSize(t.left);
+            if (k <= leftSize) {
+                t = t.left;
+            } else if (k == leftSize + 1) {
+                return t.element;
+            } else {
+                k -= leftSize + 1;
+                t = t.right;
+            }
+        }
+    }
+
+    /**
+     * Counts the keys in [lo, hi), in O(log n).
+     * @param lo Lower bound (inclusive)
+     * @param hi Upper bound (exclusive)
+     * @return Number of keys in the range, 0 if hi is not above lo
+     */
+    public int countRange(T lo, T hi) {
+        if (hi.compareTo(lo) <= 0) return 0;
+        return countBelow(hi, false) - countBelow(lo, false);
     }
 
     /**
@@ -173,6 +272,365 @@ public class AVLTree<T extends Comparable<? super T>> extends BinarySearchTree<T
         return newRoot;
     }
 
+    /**
+     * Builds a perfectly balanced AVL tree from keys in increasing order, in O(n).
+     * @param sorted Keys in strictly increasing order
+     * @param <T> Type of the keys
+     * @return The new tree
+     * @throws IllegalArgumentException If the keys are not strictly increasing
+     */
+    public static <T extends Comparable<? super T>> AVLTree<T> fromSorted(T[] sorted) {
+        return fromSorted(Arrays.asList(sorted).iterator(), sorted.length);
+    }
+
+    /**
+     * Builds a perfectly balanced AVL tree from the first n keys of an iterator,
+     * in O(n). Each key is read once, in order, so the keys may be streamed.
+     * @param sorted Iterator over keys in strictly increasing order
+     * @param n Number of keys to read
+     * @param <T> Type of the keys
+     * @return The new tree
+     * @throws IllegalArgumentException If the keys are not strictly increasing
+     * @throws NoSuchElementException If the iterator has fewer than n keys
+     */
+    public static <T extends Comparable<? super T>> AVLTree<T> fromSorted(Iterator<? extends T> sorted, int n) {
+        AVLTree<T> tree = new AVLTree<>();
+        tree.root = tree.new Builder(sorted).build(n);
+        tree.size = n;
+        return tree;
+    }
+
+    /**
+     * Helper for fromSorted, building subtrees from an iterator and checking
+     * the order of the keys as they are read.
+     */
+    private class Builder {
+
+        final Iterator<? extends T> keys;
+        T last;
+
+        /**
+         * Creates a builder reading keys from an iterator.
+         * @param keys Iterator over keys in strictly increasing order
+         */
+        Builder(Iterator<? extends T> keys) {
+            this.keys = keys;
+        }
+
+        /**
+         * Builds a balanced subtree from the next n keys, in order: left subtree, root, right subtree.
+         * @param n Number of keys in the subtree
+         * @return Root of the subtree, or null if n is 0
+         */
+        Entry<T> build(int n) {
+            if (n == 0) return null;
+            Entry<T> left = build((n - 1) / 2);
+            T x = keys.next();
+            if (last != null && last.compareTo(x) >= 0) {
+                throw new IllegalArgumentException("Keys are not in increasing order: " + last + ", " + x);
+            }
+            last = x;
+            Entry<T> right = build(n - 1 - (n - 1) / 2);
+            Entry<T> node = new Entry<>(x, left, right);
+            updateHeight(node);
+            return node;
+        }
+    }
+
+    /**
+     * Adds a batch of keys in increasing order, by building a tree of the batch in
+     * O(m) and merging it with split and join in O(m log(n / m + 1)).
+     * @param sorted Keys in strictly increasing order
+     * @return Number of keys added, not counting those already in the tree
+     * @throws IllegalArgumentException If the keys are not strictly increasing
+     */
+    public int addAll(T[] sorted) {
+        int before = size;
+        union(fromSorted(sorted));
+        return size - before;
+    }
+
+    /**
+     * Sets the children of a node and updates its height and size.
+     * @param left Left child
+     * @param node The node
+     * @param right Right child
+     * @return The node
+     */
+    private Entry<T> link(Entry<T> left, Entry<T> node, Entry<T> right) {
+        node.left = left;
+        node.right = right;
+        updateHeight(node);
+        return node;
+    }
+
+    /**
+     * Joins two AVL trees and a middle node, with every key of left smaller than the
+     * key of node and every key of right larger, in O(|height(left) - height(right)|).
+     * @param left Root of the left tree
+     * @param node Middle node, whose children are replaced
+     * @param right Root of the right tree
+     * @return Root of the joined tree
+     */
+    private Entry<T> join(Entry<T> left, Entry<T> node, Entry<T> right) {
+        if (getHeight(left) > getHeight(right) + 1) return joinRight(left, node, right);
+        if (getHeight(right) > getHeight(left) + 1) return joinLeft(left, node, right);
+        return link(left, node, right);
+    }
+
+    /**
+     * Joins when the left tree is taller: descends its right spine to a subtree
+     * of about the height of the right tree, links there, and rebalances on the way up.
+     * @param left Root of the taller left tree
+     * @param node Middle node
+     * @param right Root of the right tree
+     * @return Root of the joined tree
+     */
+    private Entry<T> joinRight(Entry<T> left, Entry<T> node, Entry<T> right) {
+        Entry<T> c = (Entry<T>) left.right;
+        if (getHeight(c) <= getHeight(right) + 1) {
+            Entry<T> t = link(c, node, right);
+            if (getHeight(t) <= getHeight((Entry<T>) left.left) + 1) {
+                return link((Entry<T>) left.left, left, t);
+            }
+            return leftRotate(link((Entry<T>) left.left, left, rightRotate(t)));
+        }
+        Entry<T> t = joinRight(c, node, right);
+        link((Entry<T>) left.left, left, t);
+        if (getHeight(t) <= getHeight((Entry<T>) left.left) + 1) return left;
+        return leftRotate(left);
+    }
+
+    /**
+     * Joins when the right tree is taller; mirror image of joinRight.
+     * @param left Root of the left tree
+     * @param node Middle node
+     * @param right Root of the taller right tree
+     * @return Root of the joined tree
+     */
+    private Entry<T> joinLeft(Entry<T> left, Entry<T> node, Entry<T> right) {
+        Entry<T> c = (Entry<T>) right.left;
+        if (getHeight(c) <= getHeight(left) + 1) {
+            Entry<T> t = link(left, node, c);
+            if (getHeight(t) <= getHeight((Entry<T>) right.right) + 1) {
+                return link(t, right, (Entry<T>) right.right);
+            }
+            return rightRotate(link(leftRotate(t), right, (Entry<T>) right.right));
+        }
+        Entry<T> t = joinLeft(left, node, c);
+        link(t, right, (Entry<T>) right.right);
+        if (getHeight(t) <= getHeight((Entry<T>) right.right) + 1) return right;
+        return rightRotate(right);
+    }
+
+    /**
+     * Result of split: the trees of the keys below and above the split key,
+     * and the node holding the key itself if it was found.
+     * @param <T> Type of the keys
+     */
+    static class Split<T> {
+
+        Entry<T> left, match, right;
+    }
+
+    /**
+     * Splits a tree around a key, in O(log n). The nodes of the tree are reused.
+     * @param node Root of the tree
+     * @param x Key to split around
+     * @param result Receives the two trees and the node holding x, if any
+     */
+    private void split(Entry<T> node, T x, Split<T> result) {
+        if (node == null) {
+            result.left = result.right = result.match = null;
+            return;
+        }
+        int cmp = x.compareTo(node.element);
+        Entry<T> left = (Entry<T>) node.left, right = (Entry<T>) node.right;
+        if (cmp == 0) {
+            result.left = left;
+            result.match = node;
+            result.right = right;
+        } else if (cmp < 0) {
+            split(left, x, result);
+            result.right = join(result.right, node, right);
+        } else {
+            split(right, x, result);
+            result.left = join(left, node, result.left);
+        }
+    }
+
+    /**
+     * Removes the last node of a tree, in O(log n).
+     * @param node Root of the tree, not null
+     * @param result Receives the remaining tree in left and the removed node in match
+     */
+    private void splitLast(Entry<T> node, Split<T> result) {
+        if (node.right == null) {
+            result.left = (Entry<T>) node.left;
+            result.match = node;
+            return;
+        }
+        Entry<T> left = (Entry<T>) node.left;
+        splitLast((Entry<T>) node.right, result);
+        result.left = join(left, node, result.left);
+    }
+
+    /**
+     * Joins two trees, with every key of left smaller than every key of right.
+     * @param left Root of the left tree
+     * @param right Root of the right tree
+     * @return Root of the joined tree
+     */
+    private Entry<T> join2(Entry<T> left, Entry<T> right) {
+        if (left == null) return right;
+        Split<T> s = new Split<>();
+        splitLast(left, s);
+        return join(s.left, s.match, right);
+    }
+
+    /** Set operations run by combine. */
+    private enum SetOperation { UNION, INTERSECTION, DIFFERENCE }
+
+    /**
+     * Combined size of two subtrees above which the two recursive calls of
+     * combine run in parallel on the fork-join pool.
+     */
+    static final int PARALLEL_THRESHOLD = 1 << 14;
+
+    /**
+     * Computes the union, intersection or difference (a minus b) of two trees.
+     * Splits a around the root of b and recurses on both halves, in O(m log(n / m + 1))
+     * work for trees of sizes m &lt;= n. The nodes of both trees are reused; where both
+     * contain a key, the node of b is kept. The two halves are independent, so large
+     * ones are computed in parallel.
+     * @param op The operation
+     * @param a Root of the first tree
+     * @param b Root of the second tree
+     * @return Root of the result
+     */
+    private Entry<T> combine(SetOperation op, Entry<T> a, Entry<T> b) {
+        if (a == null) return op == SetOperation.UNION ? b : null;
+        if (b == null) return op == SetOperation.INTERSECTION ? null : a;
+        Split<T> s = new Split<>();
+        split(a, b.element, s);
+        boolean found = s.match != null;
+        Entry<T> aLeft = s.left, aRight = s.right;
+        Entry<T> bLeft = (Entry<T>) b.left, bRight = (Entry<T>) b.right;
+        Entry<T> left, right;
+        if (getSize(aLeft) + getSize(bLeft) + getSize(aRight) + getSize(bRight) >= PARALLEL_THRESHOLD) {
+            ForkJoinTask<Entry<T>> task = ForkJoinTask.adapt(() -> combine(op, aLeft, bLeft)).fork();
+            right = combine(op, aRight, bRight);
+            left = task.join();
+        } else {
+            left = combine(op, aLeft, bLeft);
+            right = combine(op, aRight, bRight);
+        }
+        if (op == SetOperation.UNION || (op == SetOperation.INTERSECTION && found)) {
+            return join(left, b, right);
+        }
+        return join2(left, right);
+    }
+
+    /**
+     * Replaces this tree with the result of a set operation with another tree,
+     * running it on the fork-join pool when the trees are large.
+     * @param op The operation
+     * @param other The other tree, left empty
+     */
+    private void combine(SetOperation op, AVLTree<T> other) {
+        Entry<T> a = (Entry<T>) root, b = (Entry<T>) other.root;
+        if (other == this) {
+            b = null;
+            if (op == SetOperation.INTERSECTION) op = SetOperation.UNION;
+            else if (op == SetOperation.DIFFERENCE) a = null;
+        }
+        SetOperation operation = op;
+        Entry<T> first = a, second = b;
+        if (getSize(a) + getSize(b) >= PARALLEL_THRESHOLD) {
+            root = ForkJoinPool.commonPool().invoke(ForkJoinTask.adapt(() -> combine(operation, first, second)));
+        } else {
+            root = combine(operation, first, second);
+        }
+        size = getSize(root);
+        stack.clear();
+        if (other != this) {
+            other.root = null;
+            other.size = 0;
+            other.stack.clear();
+        }
+    }
+
+    /**
+     * Adds every key of another tree to this tree, in O(m log(n / m + 1)) for trees
+     * of sizes m &lt;= n. The other tree is left empty: its nodes are moved into this tree.
+     * @param other The other tree
+     */
+    public void union(AVLTree<T> other) {
+        combine(SetOperation.UNION, other);
+    }
+
+    /**
+     * Keeps only the keys of this tree that are also in another tree, in
+     * O(m log(n / m + 1)) for trees of sizes m &lt;= n. The other tree is left empty.
+     * @param other The other tree
+     */
+    public void intersection(AVLTree<T> other) {
+        combine(SetOperation.INTERSECTION, other);
+    }
+
+    /**
+     * Removes from this tree every key of another tree, in O(m log(n / m + 1))
+     * for trees of sizes m &lt;= n. The other tree is left empty.
+     * @param other The other tree
+     */
+    public void difference(AVLTree<T> other) {
+        combine(SetOperation.DIFFERENCE, other);
+    }
+
+    /**
+     * Splits this tree around a key, in O(log n): this tree keeps the keys smaller
+     * than x, and the keys from x up are moved to the returned tree.
+     * @param x Key to split around
+     * @return Tree of the keys no smaller than x
+     */
+    public AVLTree<T> split(T x) {
+        Split<T> s = new Split<>();
+        split((Entry<T>) root, x, s);
+        AVLTree<T> upper = new AVLTree<>();
+        upper.root = s.match != null ? join(null, s.match, s.right) : s.right;
+        upper.size = getSize(upper.root);
+        root = s.left;
+        size = getSize(root);
+        stack.clear();
+        return upper;
+    }
+
+    /**
+     * Joins two trees and a key into one tree, in O(log n). Every key of left must be
+     * smaller than x and every key of right larger. Both trees are left empty.
+     * @param left Tree of the keys smaller than x
+     * @param x Middle key
+     * @param right Tree of the keys larger than x
+     * @param <T> Type of the keys
+     * @return The joined tree
+     * @throws IllegalArgumentException If the keys are not ordered as required
+     */
+    public static <T extends Comparable<? super T>> AVLTree<T> join(AVLTree<T> left, T x, AVLTree<T> right) {
+        if ((left.size > 0 && left.max().compareTo(x) >= 0)
+            || (right.size > 0 && right.min().compareTo(x) <= 0)) {
+            throw new IllegalArgumentException("Keys of the left tree must be smaller than " + x
+                + " and keys of the right tree larger");
+        }
+        AVLTree<T> tree = new AVLTree<>();
+        tree.root = tree.join((Entry<T>) left.root, new Entry<>(x, null, null), (Entry<T>) right.root);
+        tree.size = getSize(tree.root);
+        left.root = right.root = null;
+        left.size = right.size = 0;
+        left.stack.clear();
+        right.stack.clear();
+        return tree;
+    }
+
     /**
      * Helper object to store AVL verification details.
      * Stores flag for validity, node height, and min/max values of subtree.
@@ -181,31 +639,35 @@ public class AVLTree<T extends Comparable<? super T>> extends BinarySearchTree<T
 
         boolean flag;
         int height;
+        int size;
         T max;
         T min;
 
         /**
-         * Constructs a VerifyObject with verification status, height, min, and max values.
+         * Constructs a VerifyObject with verification status, height, size, min, and max values.
          * @param flag verification flag (true if valid AVL subtree)
          * @param height height of the subtree
+         * @param size number of nodes in the subtree
          * @param max maximum value in the subtree
          * @param min minimum value in the subtree
          */
-        VerifyObject(boolean flag, int height, T max, T min) {
+        VerifyObject(boolean flag, int height, int size, T max, T min) {
             this.flag = flag;
             this.height = height;
+            this.size = size;
             this.max = max;
             this.min = min;
         }
     }
 
     /**
-     * Verifies if the tree meets AVL properties.
+     * Verifies if the tree meets AVL properties and the subtree sizes are correct.
      * @return True if valid, false otherwise
      */
     boolean verify() {
         if (size == 0) return true;
-        return verifyAVLTree((Entry<T>) root, null, null).flag;
+        VerifyObject result = verifyAVLTree((Entry<T>) root, null, null);
+        return result.flag && result.size == size;
     }
 
     /**
@@ -213,11 +675,11 @@ public class AVLTree<T extends Comparable<? super T>> extends BinarySearchTree<T
      * @param node Current node
      * @param min Minimum allowed value for the node
      * @param max Maximum allowed value for the node
-     * @return Verification status, height, min, and max values in a VerifyObject
+     * @return Verification status, height, size, min, and max values in a VerifyObject
      */
     private VerifyObject verifyAVLTree(Entry<T> node, T min, T max) {
         if (node == null) {
-            return new VerifyObject(true, -1, null, null);
+            return new VerifyObject(true, -1, 0, null, null);
         }
 
         VerifyObject left = verifyAVLTree((Entry<T>) node.left, min, node.element);
@@ -228,15 +690,16 @@ public class AVLTree<T extends Comparable<? super T>> extends BinarySearchTree<T
             !right.flag ||
             (min != null && node.element.compareTo(min) <= 0) ||
             (max != null && node.element.compareTo(max) >= 0) ||
-            Math.abs(left.height - right.height) > 1
+            Math.abs(left.height - right.height) > 1 ||
+            node.size != 1 + left.size + right.size
         ) {
-            return new VerifyObject(false, -1, null, null);
+            return new VerifyObject(false, -1, 0, null, null);
         }
 
         T minValue = (left.min != null) ? left.min : node.element;
         T maxValue = (right.max != null) ? right.max : node.element;
         int height = 1 + Math.max(left.height, right.height);
 
-        return new VerifyObject(true, height, maxValue, minValue);
+        return new VerifyObject(true, height, node.size, maxValue, minValue);
     }
 }
@@ -1,52 +1,53 @@
 // replace package name with your netid
 package project_2;
 
-import java.io.File;
 import java.io.FileNotFoundException;
-import java.util.Scanner;
+import java.util.Arrays;
 
 //Driver program for AVL tree implementation.
+//With a first argument of -btree (or -btree=t for minimum degree t), it runs against a LongBTree instead.
 
 public class AVLTreeDriver {
 
     public static void main(String[] args) throws FileNotFoundException {
-        Scanner sc;
-        if (args.length > 0) {
-            File file = new File(args[0]);
-            sc = new Scanner(file);
-        } else {
-            sc = new Scanner(System.in);
+        LongBTree btree = null;
+        if (args.length > 0 && args[0].startsWith("-btree")) {
+            btree = args[0].startsWith("-btree=")
+                ? new LongBTree(Integer.parseInt(args[0].substring(7))) : new LongBTree();
+            args = Arrays.copyOfRange(args, 1, args.length);
         }
-        String operation = "";
+        CommandReader in = CommandReader.open(args);
+        int operation;
         long operand = 0;
         int modValue = 999983;
         long result = 0;
         boolean VERIFY = true;
-        AVLTree<Long> avlTree = new AVLTree<>();
+        AVLTree<Long> avlTree = btree == null ? new AVLTree<>() : null;
+        String structure = btree != null ? "B-tree" : "AVL tree";
         // Initialize the timer
         Timer timer = new Timer();
 
-        while (!((operation = sc.next()).equals("End"))) {
+        while ((operation = in.next()) != CommandReader.END) {
             switch (operation) {
-                case "Add": {
-                    operand = sc.nextLong();
-                    if (avlTree.add(operand)) {
+                case CommandReader.ADD: {
+                    operand = in.nextLong();
+                    if (btree != null ? btree.add(operand) : avlTree.add(operand)) {
                         result = (result + 1) % modValue;
-                        if (VERIFY && !avlTree.verify()) System.out.println("Invalid AVL tree ");
+                        if (VERIFY && !(btree != null ? btree.verify() : avlTree.verify())) System.out.println("Invalid " + structure);
                     }
                     break;
                 }
-                case "Remove": {
-                    operand = sc.nextLong();
-                    if (avlTree.remove(operand) != null) {
+                case CommandReader.REMOVE: {
+                    operand = in.nextLong();
+                    if (btree != null ? btree.remove(operand) : avlTree.remove(operand) != null) {
                         result = (result + 1) % modValue;
-                        if (VERIFY && !avlTree.verify()) System.out.println("Invalid AVL tree ");
+                        if (VERIFY && !(btree != null ? btree.verify() : avlTree.verify())) System.out.println("Invalid " + structure);
                     }
                     break;
                 }
-                case "Contains": {
-                    operand = sc.nextLong();
-                    if (avlTree.contains(operand)) {
+                case CommandReader.CONTAINS: {
+                    operand = in.nextLong();
+                    if (btree != null ? btree.contains(operand) : avlTree.contains(operand)) {
                         result = (result + 1) % modValue;
                     }
                     break;
@@ -56,9 +57,10 @@ public class AVLTreeDriver {
 
         // End Time
         timer.end();
+        in.close();
 
         System.out.println(result);
-        System.out.println("Is valid AVL tree? " + avlTree.verify());
+        System.out.println("Is valid " + structure + "? " + (btree != null ? btree.verify() : avlTree.verify()));
         System.out.println(timer);
     }
 }
@@ -1,10 +1,10 @@
 package project_2;
 
-import java.io.File;
 import java.io.FileNotFoundException;
 import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.Scanner;
+import java.util.NoSuchElementException;
 
 /**
  * A binary search tree (BST) implementation.
@@ -49,12 +49,23 @@ public class BinarySearchTree<T extends Comparable<? super T>> implements Iterab
 
     /**
      * Checks if the tree contains the specified element.
+     * Unlike find(), it does not record the path in the shared stack.
      * @param x element to check
      * @return true if the tree contains the element, false otherwise
      */
     public boolean contains(T x) {
-        Entry<T> node = find(x);
-        return node != null && node.element.equals(x);
+        Entry<T> t = root;
+        while (t != null) {
+            int cmp = x.compareTo(t.element);
+            if (cmp < 0) {
+                t = t.left;
+            } else if (cmp > 0) {
+                t = t.right;
+            } else {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -75,6 +86,7 @@ public class BinarySearchTree<T extends Comparable<? super T>> implements Iterab
      */
     public boolean add(T x) {
         if (size == 0) {
+            stack.clear();
             root = createEntry(x, null, null);
             size++;
             return true;
@@ -181,47 +193,194 @@ public class BinarySearchTree<T extends Comparable<? super T>> implements Iterab
 
     // Start of Optional problems
 
-    /** Optional problem : Iterate elements in sorted order of keys
-     Solve this problem without creating an array using in-order traversal (toArray()).
+    /**
+     * In-order iterator over the elements in [lo, hi), kept lazy with an explicit stack
+     * holding at most one path of the tree, so no array of the elements is built.
+     * The tree must not be modified while it is iterated.
+     */
+    private class InOrderIterator implements Iterator<T> {
+
+        private final ArrayDeque<Entry<T>> path = new ArrayDeque<>();
+        private final T hi;
+
+        /**
+         * Creates an iterator positioned on the first element not smaller than lo.
+         * Subtrees entirely below lo are never pushed.
+         * @param lo lower bound (inclusive), or null for no lower bound
+         * @param hi upper bound (exclusive), or null for no upper bound
+         */
+        InOrderIterator(T lo, T hi) {
+            this.hi = hi;
+            Entry<T> t = root;
+            while (t != null) {
+                if (lo != null && t.element.compareTo(lo) < 0) {
+                    t = t.right;
+                } else {
+                    path.push(t);
+                    t = t.left;
+                }
+            }
+        }
+
+        /**
+         * Checks if there are elements left in the range.
+         * @return true if next() returns an element
+         */
+        @Override
+        public boolean hasNext() {
+            return !path.isEmpty() && (hi == null || path.peek().element.compareTo(hi) < 0);
+        }
+
+        /**
+         * Returns the next element and pushes the left spine of its right subtree.
+         * @return the next element in sorted order
+         */
+        @Override
+        public T next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            Entry<T> node = path.pop();
+            for (Entry<T> t = node.right; t != null; t = t.left) {
+                path.push(t);
+            }
+            return node.element;
+        }
+    }
+
+    /**
+     * Iterates elements in sorted order of keys, in O(1) amortized time per element
+     * and O(height) space.
+     * @return iterator over all elements
      */
     public Iterator<T> iterator() {
-        return null;
+        return new InOrderIterator(null, null);
     }
 
-    // Optional problem
+    /**
+     * Iterates elements in [lo, hi) in sorted order. Only the subtrees overlapping
+     * the range are visited, so a scan of k elements takes O(height + k).
+     * @param lo lower bound (inclusive)
+     * @param hi upper bound (exclusive)
+     * @return iterator over the elements in the range
+     */
+    public Iterator<T> iterator(T lo, T hi) {
+        return new InOrderIterator(lo, hi);
+    }
+
+    /**
+     * Finds the smallest element.
+     * @return the smallest element, or null if the tree is empty
+     */
     public T min() {
-        return null;
+        if (root == null) return null;
+        Entry<T> t = root;
+        while (t.left != null) t = t.left;
+        return t.element;
     }
 
+    /**
+     * Finds the largest element.
+     * @return the largest element, or null if the tree is empty
+     */
     public T max() {
-        return null;
+        if (root == null) return null;
+        Entry<T> t = root;
+        while (t.right != null) t = t.right;
+        return t.element;
     }
 
-    // Optional problem.  Find largest key that is no bigger than x.  Return null if there is no such key.
+    /**
+     * Finds the largest key that is no bigger than x.
+     * @param x key to search for
+     * @return the floor of x, or null if there is no such key
+     */
     public T floor(T x) {
-        return null;
+        T result = null;
+        Entry<T> t = root;
+        while (t != null) {
+            int cmp = x.compareTo(t.element);
+            if (cmp == 0) return t.element;
+            if (cmp < 0) {
+                t = t.left;
+            } else {
+                result = t.element;
+                t = t.right;
+            }
+        }
+        return result;
     }
 
-    // Optional problem.  Find smallest key that is no smaller than x.  Return null if there is no such key.
+    /**
+     * Finds the smallest key that is no smaller than x.
+     * @param x key to search for
+     * @return the ceiling of x, or null if there is no such key
+     */
     public T ceiling(T x) {
-        return null;
+        T result = null;
+        Entry<T> t = root;
+        while (t != null) {
+            int cmp = x.compareTo(t.element);
+            if (cmp == 0) return t.element;
+            if (cmp > 0) {
+                t = t.right;
+            } else {
+                result = t.element;
+                t = t.left;
+            }
+        }
+        return result;
     }
 
-    // Optional problem.  Find predecessor of x.  If x is not in the tree, return floor(x).  Return null if there is no such key.
+    /**
+     * Finds the predecessor of x, the largest key smaller than x.
+     * If x is not in the tree, this is floor(x).
+     * @param x key to search for
+     * @return the predecessor of x, or null if there is no such key
+     */
     public T predecessor(T x) {
-        return null;
+        T result = null;
+        Entry<T> t = root;
+        while (t != null) {
+            if (x.compareTo(t.element) <= 0) {
+                t = t.left;
+            } else {
+                result = t.element;
+                t = t.right;
+            }
+        }
+        return result;
     }
 
-    // Optional problem.  Find successor of x.  If x is not in the tree, return ceiling(x).  Return null if there is no such key.
+    /**
+     * Finds the successor of x, the smallest key larger than x.
+     * If x is not in the tree, this is ceiling(x).
+     * @param x key to search for
+     * @return the successor of x, or null if there is no such key
+     */
     public T successor(T x) {
-        return null;
+        T result = null;
+        Entry<T> t = root;
+        while (t != null) {
+            if (x.compareTo(t.element) >= 0) {
+                t = t.right;
+            } else {
+                result = t.element;
+                t = t.left;
+            }
+        }
+        return result;
     }
 
-    // Optional: Create an array with the elements using in-order traversal of tree
+    /**
+     * Creates an array with the elements using in-order traversal of the tree.
+     * @return the elements in sorted order
+     */
     @SuppressWarnings("rawtypes")
     public Comparable[] toArray() {
         Comparable[] arr = new Comparable[size];
-        /* write code to place elements in array here */
+        int i = 0;
+        for (T x : this) {
+            arr[i++] = x;
+        }
         return arr;
     }
 
@@ -229,43 +388,45 @@ public class BinarySearchTree<T extends Comparable<? super T>> implements Iterab
 
     /**
      * Main method to test the BinarySearchTree class.
-     * @param args command line arguments
+     * With a first argument of -btree (or -btree=t for minimum degree t), the
+     * operations run against a LongBTree instead.
+     * @param args command line arguments: [-btree[=t]] [input file]
      * @throws FileNotFoundException if file not found
      */
     public static void main(String[] args) throws FileNotFoundException {
         BinarySearchTree<Long> bst = new BinarySearchTree<>();
-        Scanner sc;
-        if (args.length > 0) {
-            File file = new File(args[0]);
-            sc = new Scanner(file);
-        } else {
-            sc = new Scanner(System.in);
+        LongBTree btree = null;
+        if (args.length > 0 && args[0].startsWith("-btree")) {
+            btree = args[0].startsWith("-btree=")
+                ? new LongBTree(Integer.parseInt(args[0].substring(7))) : new LongBTree();
+            args = Arrays.copyOfRange(args, 1, args.length);
         }
-        String operation = "";
+        CommandReader in = CommandReader.open(args);
+        int operation;
         long operand = 0;
         int modValue = 999983;
         long result = 0;
         Timer timer = new Timer();
 
-        while (!((operation = sc.next()).equals("End"))) {
+        while ((operation = in.next()) != CommandReader.END) {
             switch (operation) {
-                case "Add": {
-                    operand = sc.nextInt();
-                    if (bst.add(operand)) {
+                case CommandReader.ADD: {
+                    operand = in.nextLong();
+                    if (btree != null ? btree.add(operand) : bst.add(operand)) {
                         result = (result + 1) % modValue;
                     }
                     break;
                 }
-                case "Remove": {
-                    operand = sc.nextInt();
-                    if (bst.remove(operand) != null) {
+                case CommandReader.REMOVE: {
+                    operand = in.nextLong();
+                    if (btree != null ? btree.remove(operand) : bst.remove(operand) != null) {
                         result = (result + 1) % modValue;
                     }
                     break;
                 }
-                case "Contains": {
-                    operand = sc.nextInt();
-                    if (bst.contains(operand)) {
+                case CommandReader.CONTAINS: {
+                    operand = in.nextLong();
+                    if (btree != null ? btree.contains(operand) : bst.contains(operand)) {
                         result = (result + 1) % modValue;
                     }
                     break;
@@ -274,7 +435,7 @@ public class BinarySearchTree<T extends Comparable<? super T>> implements Iterab
         }
 
         timer.end();
-        sc.close();
+        in.close();
         System.out.println(result);
         System.out.println(timer);
     }
@@ -0,0 +1,105 @@
+package project_2;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Benchmark of the bulk operations of AVLTree against repeated add and remove calls:
+ * building a tree from sorted keys, merging a sorted batch into a tree, and the
+ * split/join based union, intersection and difference.
+ *
+ * Usage: java -Xmx4g project_2.BulkLoadBenchmark [keys]
+ */
+public class BulkLoadBenchmark {
+
+    /**
+     * Prints the time since start.
+     * @param name Name of the measured operation
+     * @param start Start time from System.nanoTime()
+     */
+    static void report(String name, long start) {
+        System.out.printf("  %-28s %10.1f ms%n", name, (System.nanoTime() - start) / 1e6);
+    }
+
+    /**
+     * Runs the benchmark.
+     * @param args Optional number of keys, 10^6 by default
+     */
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Long[] keys = new Long[n];
+        for (int i = 0; i < n; i++) keys[i] = 2L * i;
+
+        System.out.println("Build from " + n + " sorted keys");
+        long start = System.nanoTime();
+        AVLTree<Long> added = new AVLTree<>();
+        for (Long key : keys) added.add(key);
+        report("add one by one", start);
+        added = null;
+
+        start = System.nanoTime();
+        AVLTree<Long> built = AVLTree.fromSorted(keys);
+        report("fromSorted", start);
+        System.out.println("  Is valid AVL tree? " + built.verify());
+
+        int m = n / 10;
+        Random random = new Random(1);
+        Long[] batch = new Long[m];
+        for (int i = 0; i < m; i++) batch[i] = (long) random.nextInt(2 * n);
+        Arrays.sort(batch);
+        batch = Arrays.stream(batch).distinct().toArray(Long[]::new);
+
+        System.out.println("Merge " + batch.length + " sorted keys into " + n);
+        start = System.nanoTime();
+        int count = 0;
+        for (Long key : batch) {
+            if (built.add(key)) count++;
+        }
+        report("add one by one", start);
+        int expected = built.size;
+
+        built = AVLTree.fromSorted(keys);
+        start = System.nanoTime();
+        int merged = built.addAll(batch);
+        report("addAll", start);
+        System.out.println("  Added " + count + " / " + merged + ", same size: " + (built.size == expected)
+            + ", Is valid AVL tree? " + built.verify());
+
+        Long[] multiplesOf3 = new Long[n];
+        for (int i = 0; i < n; i++) multiplesOf3[i] = 3L * i;
+        System.out.println("Set operations on two trees of " + n + " keys");
+        for (int op = 0; op < 3; op++) {
+            String name = op == 0 ? "union" : op == 1 ? "intersection" : "difference";
+            AVLTree<Long> a = AVLTree.fromSorted(keys), b = AVLTree.fromSorted(multiplesOf3);
+            start = System.nanoTime();
+            for (Long key : multiplesOf3) {
+                if (op == 0) {
+                    a.add(key);
+                } else if (op == 2) {
+                    a.remove(key);
+                }
+            }
+            if (op == 1) {
+                AVLTree<Long> c = new AVLTree<>();
+                for (Long key : multiplesOf3) {
+                    if (a.contains(key)) c.add(key);
+                }
+                a = c;
+            }
+            report(name + " one by one", start);
+            int one = a.size;
+
+            a = AVLTree.fromSorted(keys);
+            start = System.nanoTime();
+            if (op == 0) {
+                a.union(b);
+            } else if (op == 1) {
+                a.intersection(b);
+            } else {
+                a.difference(b);
+            }
+            report(name, start);
+            System.out.println("  Same size: " + (a.size == one) + ", Is valid AVL tree? " + a.verify());
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package project_2;
+
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Reader of driver input ("Add 5", "Remove 5", "Contains 5", ..., "End") that
+ * parses operations and numbers straight from a byte buffer filled by block
+ * reads, without creating Strings or going through the regular expressions of
+ * Scanner.
+ *
+ * Usage:
+ *     CommandReader in = CommandReader.open(args);
+ *     for (int op = in.next(); op != CommandReader.END; op = in.next()) {
+ *         long operand = in.nextLong();
+ *         ...
+ *     }
+ */
+public class CommandReader implements Closeable {
+
+    /** Operations returned by next(). */
+    public static final int END = 0, ADD = 1, REMOVE = 2, CONTAINS = 3, OTHER = 4;
+
+    private static final byte[][] NAMES = {
+        "End".getBytes(), "Add".getBytes(), "Remove".getBytes(), "Contains".getBytes()
+    };
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[1 << 16];
+    private int position, limit;
+
+    /**
+     * Creates a reader over a stream.
+     * @param in The input
+     */
+    public CommandReader(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Opens the file named by the first argument, or standard input if there is none,
+     * as the drivers do.
+     * @param args Command line arguments
+     * @return The reader
+     * @throws FileNotFoundException If the file is not found
+     */
+    public static CommandReader open(String[] args) throws FileNotFoundException {
+        return new CommandReader(args.length > 0 ? new FileInputStream(args[0]) : System.in);
+    }
+
+    /**
+     * Refills the buffer.
+     * @return False at the end of the input
+     */
+    private boolean fill() {
+        try {
+            int n = in.read(buffer);
+            position = 0;
+            limit = Math.max(n, 0);
+            return n > 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Checks if a byte is whitespace: a space or an ASCII control character.
+     * Bytes of 0x80 and above are not, so that they are part of a word.
+     * @param b The byte, as an unsigned value
+     * @return True if the byte separates words
+     */
+    private static boolean isSpace(int b) {
+        return b <= ' ';
+    }
+
+    /**
+     * Reads the byte at the current position, refilling the buffer if needed.
+     * @return The byte as an unsigned value, or -1 at the end of the input
+     */
+    private int peek() {
+        if (position == limit && !fill()) return -1;
+        return buffer[position] & 0xFF;
+    }
+
+    /**
+     * Skips whitespace.
+     * @return The next byte, without consuming it, or -1 at the end of the input
+     */
+    private int skipSpace() {
+        while (true) {
+            int b = peek();
+            if (b < 0 || !isSpace(b)) return b;
+            position++;
+        }
+    }
+
+    /**
+     * Reads the next operation, matching its bytes against the operation names.
+     * A word that is not an operation is consumed and returned as OTHER.
+     * @return END, ADD, REMOVE, CONTAINS or OTHER; END at the end of the input too
+     */
+    public int next() {
+        int b = skipSpace();
+        if (b < 0) return END;
+        int op = -1;
+        for (int i = 0; i < NAMES.length; i++) {
+            if (NAMES[i][0] == b) op = i;
+        }
+        int length = 0;
+        while (b >= 0 && !isSpace(b)) {
+            if (op >= 0 && (length >= NAMES[op].length || NAMES[op][length] != b)) op = -1;
+            length++;
+            position++;
+            b = peek();
+        }
+        return op >= 0 && length == NAMES[op].length ? op : OTHER;
+    }
+
+    /**
+     * Reads the next number: an optional minus sign and decimal digits, ending at
+     * whitespace or at the end of the input.
+     * @return The number
+     * @throws NumberFormatException If the next word is not a number
+     */
+    public long nextLong() {
+        int b = skipSpace();
+        boolean negative = b == '-';
+        if (negative) {
+            position++;
+            b = peek();
+        }
+        if (b < '0' || b > '9') throw new NumberFormatException("Number expected");
+        long value = 0;
+        while (b >= '0' && b <= '9') {
+            int digit = b - '0';
+            if (value < Long.MIN_VALUE / 10 || value * 10 < Long.MIN_VALUE + digit) {
+                throw new NumberFormatException("Number too large");
+            }
+            value = value * 10 - digit; // accumulated negatively to reach Long.MIN_VALUE
+            position++;
+            b = peek();
+        }
+        if (b >= 0 && !isSpace(b)) throw new NumberFormatException("Number expected");
+        if (value == Long.MIN_VALUE && !negative) throw new NumberFormatException("Number too large");
+        return negative ? value : -value;
+    }
+
+    /**
+     * Closes the input.
+     */
+    @Override
+    public void close() {
+        try {
+            in.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package project_2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Thread-safe ordered set built on AVLTree, striped by key range.
+ * The keys are split into stripes at the split points given to the constructor;
+ * each stripe is an AVLTree with its own StampedLock. Writers take the write lock
+ * of their stripe only, so the find() stack and the rebalancing of a tree are used
+ * by one thread at a time, while writers of different stripes run in parallel.
+ * Readers walk the tree of their stripe without any lock and then validate the
+ * stamp; if a writer ran meanwhile they walk again, so lookups never block on a
+ * lock and never write shared state.
+ * @param <T> The type of elements stored in the tree.
+ */
+public class ConcurrentAVLTree<T extends Comparable<? super T>> {
+
+    /**
+     * One key range: a tree and the lock guarding it.
+     * @param <T> The type of elements stored in the tree.
+     */
+    private static final class Stripe<T extends Comparable<? super T>> {
+
+        final AVLTree<T> tree = new AVLTree<>();
+        final StampedLock lock = new StampedLock();
+    }
+
+    private final T[] splits;
+    private final Stripe<T>[] stripes;
+
+    /**
+     * Maximum number of nodes an optimistic lookup visits. A lookup that races with
+     * a rotation may follow a stale link; the bound guarantees it terminates, and
+     * the failed validation makes it walk again. An AVL tree of height 128
+     * would need more than 2^88 nodes.
+     */
+    private static final int MAX_STEPS = 128;
+
+    /**
+     * Constructs an empty set. Stripe i holds the elements from splits[i - 1]
+     * (inclusive) to splits[i] (exclusive); without split points there is one stripe.
+     * @param splits Split points in increasing order
+     * @throws IllegalArgumentException If the split points are not increasing
+     */
+    @SafeVarargs
+    @SuppressWarnings("unchecked")
+    public ConcurrentAVLTree(T... splits) {
+        for (int i = 1; i < splits.length; i++) {
+            if (splits[i - 1].compareTo(splits[i]) >= 0) {
+                throw new IllegalArgumentException("Split points must be increasing");
+            }
+        }
+        this.splits = splits.clone();
+        stripes = new Stripe[splits.length + 1];
+        for (int i = 0; i < stripes.length; i++) stripes[i] = new Stripe<>();
+    }
+
+    /**
+     * Finds the stripe of an element.
+     * @param x element to place
+     * @return the stripe whose range contains x
+     */
+    private Stripe<T> stripe(T x) {
+        int i = Arrays.binarySearch(splits, x);
+        return stripes[i >= 0 ? i + 1 : -i - 1];
+    }
+
+    /**
+     * Checks if the set contains an element. The lookup is optimistic and is
+     * retried until no writer of the stripe ran during it.
+     * @param x element to check
+     * @return true if the set contains the element, false otherwise
+     */
+    public boolean contains(T x) {
+        Stripe<T> stripe = stripe(x);
+        while (true) {
+            long stamp = stripe.lock.tryOptimisticRead();
+            if (stamp != 0) {
+                try {
+                    boolean found = search(stripe.tree, x);
+                    if (stripe.lock.validate(stamp)) return found;
+                } catch (RuntimeException e) {
+                    // saw a node in the middle of a write; the validation fails, walk again
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Walks down from the root without touching shared state, for at most MAX_STEPS nodes.
+     * @param tree the tree to search
+     * @param x element to find
+     * @return true if the element was found
+     */
+    private static <T extends Comparable<? super T>> boolean search(AVLTree<T> tree, T x) {
+        BinarySearchTree.Entry<T> t = tree.root;
+        for (int steps = 0; t != null && steps < MAX_STEPS; steps++) {
+            int cmp = x.compareTo(t.element);
+            if (cmp < 0) {
+                t = t.left;
+            } else if (cmp > 0) {
+                t = t.right;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds an element if it is not already present.
+     * @param x element to add
+     * @return true if the element was added, false if it was already present
+     */
+    public boolean add(T x) {
+        Stripe<T> stripe = stripe(x);
+        long stamp = stripe.lock.writeLock();
+        try {
+            return stripe.tree.add(x);
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes an element if present.
+     * @param x element to remove
+     * @return the removed element if found, otherwise null
+     */
+    public T remove(T x) {
+        Stripe<T> stripe = stripe(x);
+        long stamp = stripe.lock.writeLock();
+        try {
+            return stripe.tree.remove(x);
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Returns the number of elements: the sum of the stripe sizes, each read
+     * optimistically, so concurrent writes to other stripes may or may not be counted.
+     * @return number of elements in the set
+     */
+    public int size() {
+        int total = 0;
+        for (Stripe<T> stripe : stripes) {
+            while (true) {
+                long stamp = stripe.lock.tryOptimisticRead();
+                int size = stripe.tree.size;
+                if (stamp != 0 && stripe.lock.validate(stamp)) {
+                    total += size;
+                    break;
+                }
+                Thread.onSpinWait();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Verifies the AVL properties of every stripe, and that every element lies in
+     * the range of its stripe, locking one stripe at a time.
+     * @return True if valid, false otherwise
+     */
+    boolean verify() {
+        for (int i = 0; i < stripes.length; i++) {
+            Stripe<T> stripe = stripes[i];
+            long stamp = stripe.lock.readLock();
+            try {
+                if (!stripe.tree.verify()) return false;
+                if (stripe.tree.size == 0) continue;
+                if (i > 0 && stripe.tree.min().compareTo(splits[i - 1]) < 0) return false;
+                if (i < splits.length && stripe.tree.max().compareTo(splits[i]) >= 0) return false;
+            } finally {
+                stripe.lock.unlockRead(stamp);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Runs threads that each add, remove and look up random keys of their own range,
+     * so that each thread knows the expected contents of its range.
+     * @param set The set under test
+     * @param threads Number of threads
+     * @param ops Operations per thread
+     * @param writePercent Percentage of operations that are adds or removes
+     * @param expected Receives the keys each thread left in the set, or null to skip checking
+     * @return Total elapsed time in nanoseconds
+     * @throws InterruptedException If interrupted while waiting for the threads
+     * @throws IllegalStateException If an operation returned a wrong result or threw,
+     *         with the first exception thrown by a worker as its cause
+     */
+    static long runPhase(ConcurrentAVLTree<Long> set, int threads, int ops, int writePercent,
+                         List<Set<Long>> expected) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        AtomicLong failures = new AtomicLong();
+        AtomicReference<RuntimeException> error = new AtomicReference<>();
+        for (int id = 0; id < threads; id++) {
+            final int range = id;
+            final Set<Long> mine = expected != null ? expected.get(id) : null;
+            Thread worker = new Thread(() -> {
+                Random random = new Random(range * 7919L + ops);
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                try {
+                    for (int i = 0; i < ops; i++) {
+                        long key = (long) range << 32 | random.nextInt(10_000);
+                        int op = random.nextInt(100);
+                        if (op < writePercent / 2) {
+                            boolean added = set.add(key);
+                            if (mine != null && added != mine.add(key)) failures.incrementAndGet();
+                        } else if (op < writePercent) {
+                            boolean removed = set.remove(key) != null;
+                            if (mine != null && removed != mine.remove(key)) failures.incrementAndGet();
+                        } else {
+                            boolean found = set.contains(key);
+                            if (mine != null && found != mine.contains(key)) failures.incrementAndGet();
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    // a corrupted tree may throw instead of answering wrong; kept as the cause
+                    error.compareAndSet(null, e);
+                    failures.incrementAndGet();
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) worker.join();
+        long elapsed = System.nanoTime() - begin;
+        if (failures.get() > 0) {
+            throw new IllegalStateException("Wrong results: " + failures.get(), error.get());
+        }
+        return elapsed;
+    }
+
+    /**
+     * Split points giving each stripe the key ranges of consecutive threads of runPhase.
+     * @param stripes Number of stripes
+     * @param threadsPerStripe Number of thread ranges in each stripe
+     * @return The split points
+     */
+    static Long[] splits(int stripes, int threadsPerStripe) {
+        Long[] splits = new Long[stripes - 1];
+        for (int i = 1; i < stripes; i++) splits[i - 1] = (long) (i * threadsPerStripe) << 32;
+        return splits;
+    }
+
+    /**
+     * Stress test and throughput curve.
+     * The stress test runs phases of concurrent operations with different write ratios
+     * and checks verify(), the size and the contents after every phase, failing with
+     * an exception at the first error. Two threads share each stripe, so writers
+     * contend within a stripe as well as run in parallel across stripes. The curve
+     * reports throughput from 1 to N threads of a 90% and a 50% lookup mix, with a
+     * single stripe and with one stripe per thread.
+     * @param args Optional maximum number of threads and operations per thread
+     * @throws InterruptedException If interrupted while waiting for the threads
+     * @throws IllegalStateException If a check fails
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0])
+            : Runtime.getRuntime().availableProcessors();
+        int ops = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+
+        ConcurrentAVLTree<Long> set = new ConcurrentAVLTree<>(splits((maxThreads + 1) / 2, 2));
+        List<Set<Long>> expected = new ArrayList<>();
+        for (int i = 0; i < maxThreads; i++) expected.add(new HashSet<>());
+        int[] writePercents = {100, 50, 10, 80};
+        for (int phase = 0; phase < writePercents.length; phase++) {
+            runPhase(set, maxThreads, ops, writePercents[phase], expected);
+            int total = 0;
+            boolean contents = true;
+            for (Set<Long> keys : expected) {
+                total += keys.size();
+                for (long key : keys) contents &= set.contains(key);
+            }
+            boolean valid = set.verify();
+            System.out.printf("Phase %d (%d%% writes): size %d/%d, contents %s, Is valid AVL tree? %s%n",
+                phase + 1, writePercents[phase], set.size(), total, contents ? "ok" : "wrong", valid);
+            if (set.size() != total || !contents || !valid) {
+                throw new IllegalStateException("Phase " + (phase + 1) + " left the set inconsistent");
+            }
+        }
+
+        for (int threads = 1; ; threads = Math.min(2 * threads, maxThreads)) {
+            System.out.printf("%2d threads:", threads);
+            for (int writePercent : new int[] {10, 50}) {
+                for (int stripes : threads == 1 ? new int[] {1} : new int[] {1, threads}) {
+                    ConcurrentAVLTree<Long> bench = new ConcurrentAVLTree<>(splits(stripes, 1));
+                    runPhase(bench, threads, ops, 100, null);  // fill and warm up
+                    long elapsed = runPhase(bench, threads, ops, writePercent, null);
+                    System.out.printf("  %d%% writes, %d stripes: %6.2f Mops/s", writePercent, stripes,
+                        1e3 * threads * ops / elapsed);
+                }
+            }
+            System.out.println();
+            if (threads == maxThreads) break;
+        }
+    }
+}
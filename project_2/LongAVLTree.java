@@ -0,0 +1,402 @@
+package project_2;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * AVL tree specialized for primitive long keys.
+ * Same add, remove and contains semantics as AVLTree&lt;Long&gt;, but keys are
+ * stored unboxed in the nodes and compared with &lt; and &gt; instead of compareTo.
+ * The path from the root is kept in a reusable array instead of an ArrayDeque.
+ */
+public class LongAVLTree {
+
+    /**
+     * Node of the tree, holding its key unboxed.
+     */
+    static class Entry {
+
+        long key;
+        Entry left, right;
+        int height;
+
+        /**
+         * Constructs a leaf node.
+         * @param key Key of the node
+         */
+        Entry(long key) {
+            this.key = key;
+        }
+    }
+
+    Entry root;
+    int size;
+    private Entry[] path = new Entry[64];
+    private int depth;
+
+    /**
+     * Constructs an empty tree.
+     */
+    public LongAVLTree() {
+        root = null;
+        size = 0;
+    }
+
+    /**
+     * Returns the number of keys.
+     * @return Number of keys in the tree
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks if the tree contains a key.
+     * @param x Key to check
+     * @return True if the key is in the tree
+     */
+    public boolean contains(long x) {
+        Entry t = root;
+        while (t != null) {
+            if (x < t.key) {
+                t = t.left;
+            } else if (x > t.key) {
+                t = t.right;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Pushes a node on the path.
+     * @param node Node to push
+     */
+    private void push(Entry node) {
+        if (depth == path.length) path = Arrays.copyOf(path, 2 * depth);
+        path[depth++] = node;
+    }
+
+    /**
+     * Finds a key, leaving the ancestors of the node found (or of the
+     * position where the key would be inserted) on the path.
+     * @param x Key to find
+     * @return The node holding the key, or null if not found
+     */
+    private Entry find(long x) {
+        depth = 0;
+        Entry t = root;
+        while (t != null) {
+            if (x < t.key) {
+                push(t);
+                t = t.left;
+            } else if (x > t.key) {
+                push(t);
+                t = t.right;
+            } else {
+                return t;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds a key, balancing the tree if necessary.
+     * @param x Key to add
+     * @return True if the key was added, false if it already exists
+     */
+    public boolean add(long x) {
+        if (find(x) != null) return false;
+        Entry node = new Entry(x);
+        if (depth == 0) {
+            root = node;
+        } else {
+            Entry parent = path[depth - 1];
+            if (x < parent.key) {
+                parent.left = node;
+            } else {
+                parent.right = node;
+            }
+        }
+        size++;
+        balanceTree();
+        return true;
+    }
+
+    /**
+     * Removes a key and rebalances the tree.
+     * @param x Key to remove
+     * @return True if the key was removed, false if it was not found
+     */
+    public boolean remove(long x) {
+        Entry node = find(x);
+        if (node == null) return false;
+        if (node.left != null && node.right != null) {
+            push(node);
+            Entry successor = node.right;
+            while (successor.left != null) {
+                push(successor);
+                successor = successor.left;
+            }
+            node.key = successor.key;
+            node = successor;
+        }
+        replace(node, node.left != null ? node.left : node.right);
+        size--;
+        balanceTree();
+        return true;
+    }
+
+    /**
+     * Replaces a child of the node on top of the path, or the root if the path is empty.
+     * @param node The child to replace
+     * @param child The new child
+     */
+    private void replace(Entry node, Entry child) {
+        if (depth == 0) {
+            root = child;
+        } else if (path[depth - 1].left == node) {
+            path[depth - 1].left = child;
+        } else {
+            path[depth - 1].right = child;
+        }
+    }
+
+    /**
+     * Balances the tree from the top of the path up to the root.
+     */
+    private void balanceTree() {
+        while (depth > 0) {
+            Entry node = path[--depth];
+            updateHeight(node);
+            int balance = getBalance(node);
+            Entry top = node;
+
+            if (balance > 1) {
+                if (getBalance(node.left) < 0) node.left = leftRotate(node.left);
+                top = rightRotate(node);
+            } else if (balance < -1) {
+                if (getBalance(node.right) > 0) node.right = rightRotate(node.right);
+                top = leftRotate(node);
+            }
+
+            if (top != node) replace(node, top);
+        }
+    }
+
+    /**
+     * Gets the height of a node.
+     * @param node Node to check
+     * @return Height of the node, -1 for null
+     */
+    private static int getHeight(Entry node) {
+        return (node == null) ? -1 : node.height;
+    }
+
+    /**
+     * Updates the height of a node.
+     * @param node Node to update
+     */
+    private static void updateHeight(Entry node) {
+        node.height = 1 + Math.max(getHeight(node.left), getHeight(node.right));
+    }
+
+    /**
+     * Calculates the balance factor of a node.
+     * @param node Node to check
+     * @return Balance factor of the node
+     */
+    private static int getBalance(Entry node) {
+        return getHeight(node.left) - getHeight(node.right);
+    }
+
+    /**
+     * Performs a right rotation on the subtree.
+     * @param node Root of the subtree
+     * @return New root after rotation
+     */
+    private static Entry rightRotate(Entry node) {
+        Entry newRoot = node.left;
+        node.left = newRoot.right;
+        newRoot.right = node;
+        updateHeight(node);
+        updateHeight(newRoot);
+        return newRoot;
+    }
+
+    /**
+     * Performs a left rotation on the subtree.
+     * @param node Root of the subtree
+     * @return New root after rotation
+     */
+    private static Entry leftRotate(Entry node) {
+        Entry newRoot = node.right;
+        node.right = newRoot.left;
+        newRoot.left = node;
+        updateHeight(node);
+        updateHeight(newRoot);
+        return newRoot;
+    }
+
+    /**
+     * Verifies that the tree is a valid AVL tree: keys in order, stored heights
+     * correct and balance factors within [-1, 1].
+     * @return True if valid, false otherwise
+     */
+    boolean verify() {
+        return verify(root, Long.MIN_VALUE, false, Long.MAX_VALUE, false) != -2;
+    }
+
+    /**
+     * Verifies a subtree recursively.
+     * @param node Root of the subtree
+     * @param min Lower bound (exclusive) of its keys, if hasMin
+     * @param hasMin True if the subtree has a lower bound
+     * @param max Upper bound (exclusive) of its keys, if hasMax
+     * @param hasMax True if the subtree has an upper bound
+     * @return Height of the subtree, or -2 if it is invalid
+     */
+    private int verify(Entry node, long min, boolean hasMin, long max, boolean hasMax) {
+        if (node == null) return -1;
+        if ((hasMin && node.key <= min) || (hasMax && node.key >= max)) return -2;
+        int left = verify(node.left, min, hasMin, node.key, true);
+        if (left == -2) return -2;
+        int right = verify(node.right, node.key, true, max, hasMax);
+        if (right == -2) return -2;
+        if (Math.abs(left - right) > 1 || node.height != 1 + Math.max(left, right)) return -2;
+        return node.height;
+    }
+
+    /**
+     * Operations read from a driver input file, stored so that the file parsing
+     * is not part of the timing.
+     */
+    static class Commands {
+
+        static final byte ADD = 0, REMOVE = 1, CONTAINS = 2;
+
+        byte[] op = new byte[1024];
+        long[] operand = new long[1024];
+        int count;
+
+        /**
+         * Reads the operations of a driver input file, up to "End".
+         * @param file The input file
+         * @throws FileNotFoundException If the file is not found
+         */
+        Commands(File file) throws FileNotFoundException {
+            try (CommandReader in = new CommandReader(new FileInputStream(file))) {
+                int operation;
+                while ((operation = in.next()) != CommandReader.END) {
+                    byte o = switch (operation) {
+                        case CommandReader.ADD -> ADD;
+                        case CommandReader.REMOVE -> REMOVE;
+                        case CommandReader.CONTAINS -> CONTAINS;
+                        default -> -1;
+                    };
+                    if (o < 0) continue;
+                    if (count == op.length) {
+                        op = Arrays.copyOf(op, 2 * count);
+                        operand = Arrays.copyOf(operand, 2 * count);
+                    }
+                    op[count] = o;
+                    operand[count++] = in.nextLong();
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs the operations on a LongAVLTree.
+     * @param c The operations
+     * @return The driver result: number of successful operations modulo 999983
+     */
+    static long run(Commands c) {
+        LongAVLTree tree = new LongAVLTree();
+        long result = 0;
+        for (int i = 0; i < c.count; i++) {
+            boolean done = switch (c.op[i]) {
+                case Commands.ADD -> tree.add(c.operand[i]);
+                case Commands.REMOVE -> tree.remove(c.operand[i]);
+                default -> tree.contains(c.operand[i]);
+            };
+            if (done) result = (result + 1) % 999983;
+        }
+        return result;
+    }
+
+    /**
+     * Runs the operations on an AVLTree&lt;Long&gt;.
+     * @param c The operations
+     * @return The driver result: number of successful operations modulo 999983
+     */
+    static long runGeneric(Commands c) {
+        AVLTree<Long> tree = new AVLTree<>();
+        long result = 0;
+        for (int i = 0; i < c.count; i++) {
+            boolean done = switch (c.op[i]) {
+                case Commands.ADD -> tree.add(c.operand[i]);
+                case Commands.REMOVE -> tree.remove(c.operand[i]) != null;
+                default -> tree.contains(c.operand[i]);
+            };
+            if (done) result = (result + 1) % 999983;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the heap in use after a garbage collection.
+     * @return Used heap in bytes
+     */
+    static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Compares LongAVLTree with AVLTree&lt;Long&gt;: throughput on the operations of a
+     * driver input file, and heap per key after inserting random keys.
+     * @param args Input file (bst-t02.txt by default) and number of keys for the heap comparison
+     * @throws FileNotFoundException If the input file is not found
+     */
+    public static void main(String[] args) throws FileNotFoundException {
+        String file = args.length > 0 ? args[0] : "project_2/p2-testcases/bst-t02.txt";
+        int keys = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        Commands c = new Commands(new File(file));
+
+        long generic = 0, primitive = 0, r1 = 0, r2 = 0;
+        int rounds = 20;
+        for (int round = 0; round < 2 * rounds; round++) {
+            long start = System.nanoTime();
+            r1 = runGeneric(c);
+            long mid = System.nanoTime();
+            r2 = run(c);
+            long end = System.nanoTime();
+            if (round >= rounds) { // first half is warmup
+                generic += mid - start;
+                primitive += end - mid;
+            }
+        }
+        System.out.println("Operations: " + c.count + " Results: " + r1 + " " + r2);
+        System.out.printf("AVLTree<Long>: %.1f Mops/s LongAVLTree: %.1f Mops/s%n",
+            1e3 * c.count * rounds / generic, 1e3 * c.count * rounds / primitive);
+
+        long[] values = new Random(1).longs(keys).toArray();
+        long before = usedMemory();
+        AVLTree<Long> boxed = new AVLTree<>();
+        for (long v : values) boxed.add(v);
+        long boxedBytes = usedMemory() - before;
+        before = usedMemory();
+        LongAVLTree unboxed = new LongAVLTree();
+        for (long v : values) unboxed.add(v);
+        long unboxedBytes = usedMemory() - before;
+        System.out.printf("Heap per key: AVLTree<Long> %.1f bytes, LongAVLTree %.1f bytes (%d %d)%n",
+            (double) boxedBytes / keys, (double) unboxedBytes / keys, boxed.size, unboxed.size);
+        System.out.println("Is valid AVL tree? " + unboxed.verify());
+    }
+}
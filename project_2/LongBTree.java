@@ -0,0 +1,379 @@
+package project_2;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * B-tree of primitive long keys with configurable fan-out.
+ * Every node holds up to 2t - 1 sorted keys in one long[] and, if it is not a leaf,
+ * up to 2t children, where t is the minimum degree. A lookup reads one node per
+ * level, about log_t(n) levels instead of the log_2(n) of a binary tree, and the
+ * keys of a node are contiguous, so each level costs a few cache misses at most.
+ * Same add, remove and contains semantics as LongAVLTree.
+ * add and remove are single pass: full nodes are split and minimal nodes refilled
+ * on the way down, so no pass back up the tree is needed.
+ */
+public class LongBTree {
+
+    /**
+     * Node of the tree: n sorted keys and, for an internal node, n + 1 children.
+     */
+    static final class Node {
+
+        final long[] keys;
+        final Node[] children; // null for a leaf
+        int n;
+
+        /**
+         * Constructs an empty node.
+         * @param t Minimum degree of the tree
+         * @param leaf True for a leaf
+         */
+        Node(int t, boolean leaf) {
+            keys = new long[2 * t - 1];
+            children = leaf ? null : new Node[2 * t];
+        }
+
+        /**
+         * Searches the keys of the node.
+         * @param x Key to search for
+         * @return Index of the key if found, otherwise (-(insertion point) - 1)
+         */
+        int search(long x) {
+            return Arrays.binarySearch(keys, 0, n, x);
+        }
+    }
+
+    static final int DEFAULT_MIN_DEGREE = 32;
+
+    final int t;
+    Node root;
+    int size;
+
+    /**
+     * Constructs an empty tree with nodes of up to 63 keys.
+     */
+    public LongBTree() {
+        this(DEFAULT_MIN_DEGREE);
+    }
+
+    /**
+     * Constructs an empty tree.
+     * @param minDegree Minimum degree t: nodes hold t - 1 to 2t - 1 keys, except the root
+     * @throws IllegalArgumentException If minDegree is less than 2
+     */
+    public LongBTree(int minDegree) {
+        if (minDegree < 2) throw new IllegalArgumentException("Minimum degree must be at least 2: " + minDegree);
+        t = minDegree;
+        root = new Node(t, true);
+        size = 0;
+    }
+
+    /**
+     * Returns the number of keys.
+     * @return Number of keys in the tree
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks if the tree contains a key.
+     * @param x Key to check
+     * @return True if the key is in the tree
+     */
+    public boolean contains(long x) {
+        Node node = root;
+        while (true) {
+            int i = node.search(x);
+            if (i >= 0) return true;
+            if (node.children == null) return false;
+            node = node.children[-i - 1];
+        }
+    }
+
+    /**
+     * Adds a key.
+     * @param x Key to add
+     * @return True if the key was added, false if it already exists
+     */
+    public boolean add(long x) {
+        if (root.n == 2 * t - 1) {
+            Node newRoot = new Node(t, false);
+            newRoot.children[0] = root;
+            root = newRoot;
+            splitChild(newRoot, 0);
+        }
+        Node node = root;
+        while (true) {
+            int i = node.search(x);
+            if (i >= 0) return false;
+            i = -i - 1;
+            if (node.children == null) {
+                System.arraycopy(node.keys, i, node.keys, i + 1, node.n - i);
+                node.keys[i] = x;
+                node.n++;
+                size++;
+                return true;
+            }
+            if (node.children[i].n == 2 * t - 1) {
+                splitChild(node, i);
+                if (x == node.keys[i]) return false;
+                if (x > node.keys[i]) i++;
+            }
+            node = node.children[i];
+        }
+    }
+
+    /**
+     * Splits the full child i of a node in two, moving its middle key up to the node.
+     * @param parent Node that is not full
+     * @param i Index of the full child
+     */
+    private void splitChild(Node parent, int i) {
+        Node full = parent.children[i];
+        Node right = new Node(t, full.children == null);
+        right.n = t - 1;
+        System.arraycopy(full.keys, t, right.keys, 0, t - 1);
+        if (full.children != null) {
+            System.arraycopy(full.children, t, right.children, 0, t);
+            Arrays.fill(full.children, t, 2 * t, null);
+        }
+        full.n = t - 1;
+        System.arraycopy(parent.children, i + 1, parent.children, i + 2, parent.n - i);
+        parent.children[i + 1] = right;
+        System.arraycopy(parent.keys, i, parent.keys, i + 1, parent.n - i);
+        parent.keys[i] = full.keys[t - 1];
+        parent.n++;
+    }
+
+    /**
+     * Removes a key.
+     * @param x Key to remove
+     * @return True if the key was removed, false if it was not found
+     */
+    public boolean remove(long x) {
+        boolean removed = remove(root, x);
+        if (root.n == 0 && root.children != null) root = root.children[0];
+        if (removed) size--;
+        return removed;
+    }
+
+    /**
+     * Removes a key from a subtree whose root has at least t keys, or is the root of
+     * the tree. Every child is given at least t keys before descending into it, so a
+     * leaf can always lose a key.
+     * @param node Root of the subtree
+     * @param x Key to remove
+     * @return True if the key was removed
+     */
+    private boolean remove(Node node, long x) {
+        while (true) {
+            int i = node.search(x);
+            if (i >= 0) {
+                if (node.children == null) {
+                    System.arraycopy(node.keys, i + 1, node.keys, i, node.n - i - 1);
+                    node.n--;
+                    return true;
+                }
+                Node left = node.children[i], right = node.children[i + 1];
+                if (left.n >= t) {
+                    Node m = left;
+                    while (m.children != null) m = m.children[m.n];
+                    x = m.keys[m.n - 1]; // predecessor replaces the key, then is removed below
+                    node.keys[i] = x;
+                    node = left;
+                } else if (right.n >= t) {
+                    Node m = right;
+                    while (m.children != null) m = m.children[0];
+                    x = m.keys[0];       // successor replaces the key, then is removed below
+                    node.keys[i] = x;
+                    node = right;
+                } else {
+                    merge(node, i);
+                    node = left;
+                }
+                continue;
+            }
+            if (node.children == null) return false;
+            int c = -i - 1;
+            Node child = node.children[c];
+            if (child.n == t - 1) {
+                if (c > 0 && node.children[c - 1].n >= t) {
+                    borrowFromLeft(node, c);
+                } else if (c < node.n && node.children[c + 1].n >= t) {
+                    borrowFromRight(node, c);
+                } else if (c < node.n) {
+                    merge(node, c);
+                } else {
+                    merge(node, c - 1);
+                    child = node.children[c - 1];
+                }
+            }
+            node = child;
+        }
+    }
+
+    /**
+     * Merges child i + 1 and the key between them into child i; both have t - 1 keys.
+     * @param parent Parent of the two children
+     * @param i Index of the left child
+     */
+    private void merge(Node parent, int i) {
+        Node left = parent.children[i], right = parent.children[i + 1];
+        left.keys[t - 1] = parent.keys[i];
+        System.arraycopy(right.keys, 0, left.keys, t, right.n);
+        if (left.children != null) System.arraycopy(right.children, 0, left.children, t, right.n + 1);
+        left.n = 2 * t - 1;
+        System.arraycopy(parent.keys, i + 1, parent.keys, i, parent.n - i - 1);
+        System.arraycopy(parent.children, i + 2, parent.children, i + 1, parent.n - i - 1);
+        parent.children[parent.n] = null;
+        parent.n--;
+    }
+
+    /**
+     * Moves a key from the left sibling of child c, through the parent, into child c.
+     * @param parent Parent of the child
+     * @param c Index of the child
+     */
+    private void borrowFromLeft(Node parent, int c) {
+        Node child = parent.children[c], left = parent.children[c - 1];
+        System.arraycopy(child.keys, 0, child.keys, 1, child.n);
+        child.keys[0] = parent.keys[c - 1];
+        parent.keys[c - 1] = left.keys[left.n - 1];
+        if (child.children != null) {
+            System.arraycopy(child.children, 0, child.children, 1, child.n + 1);
+            child.children[0] = left.children[left.n];
+            left.children[left.n] = null;
+        }
+        child.n++;
+        left.n--;
+    }
+
+    /**
+     * Moves a key from the right sibling of child c, through the parent, into child c.
+     * @param parent Parent of the child
+     * @param c Index of the child
+     */
+    private void borrowFromRight(Node parent, int c) {
+        Node child = parent.children[c], right = parent.children[c + 1];
+        child.keys[child.n] = parent.keys[c];
+        parent.keys[c] = right.keys[0];
+        System.arraycopy(right.keys, 1, right.keys, 0, right.n - 1);
+        if (child.children != null) {
+            child.children[child.n + 1] = right.children[0];
+            System.arraycopy(right.children, 1, right.children, 0, right.n);
+            right.children[right.n] = null;
+        }
+        child.n++;
+        right.n--;
+    }
+
+    /**
+     * Verifies the B-tree properties: keys sorted and within the bounds set by the
+     * parent, t - 1 to 2t - 1 keys in every node but the root, all leaves at the
+     * same depth, and the size matching the number of keys.
+     * @return True if valid, false otherwise
+     */
+    boolean verify() {
+        long[] count = new long[1];
+        return verify(root, Long.MIN_VALUE, false, Long.MAX_VALUE, false, count) >= 0 && count[0] == size;
+    }
+
+    /**
+     * Verifies a subtree recursively.
+     * @param node Root of the subtree
+     * @param min Lower bound (exclusive) of its keys, if hasMin
+     * @param hasMin True if the subtree has a lower bound
+     * @param max Upper bound (exclusive) of its keys, if hasMax
+     * @param hasMax True if the subtree has an upper bound
+     * @param count Accumulates the number of keys
+     * @return Height of the subtree, or -1 if it is invalid
+     */
+    private int verify(Node node, long min, boolean hasMin, long max, boolean hasMax, long[] count) {
+        if (node.n > 2 * t - 1 || (node != root && node.n < t - 1)) return -1;
+        for (int i = 0; i < node.n; i++) {
+            long k = node.keys[i];
+            if ((i == 0 ? hasMin && k <= min : k <= node.keys[i - 1]) || (hasMax && k >= max)) return -1;
+        }
+        count[0] += node.n;
+        if (node.children == null) return 0;
+        int height = -1;
+        for (int i = 0; i <= node.n; i++) {
+            int h = verify(node.children[i],
+                i == 0 ? min : node.keys[i - 1], i == 0 ? hasMin : true,
+                i == node.n ? max : node.keys[i], i == node.n ? hasMax : true, count);
+            if (h < 0 || (height >= 0 && h != height)) return -1;
+            height = h;
+        }
+        return height + 1;
+    }
+
+    /**
+     * Builds an AVLTree&lt;Long&gt; and measures its heap and lookup latency.
+     * @param keys Keys to add
+     * @param queries Keys to look up
+     * @return Bytes per key, nanoseconds per lookup and number of hits
+     */
+    static double[] measureAVLTree(long[] keys, Long[] queries) {
+        long before = LongAVLTree.usedMemory();
+        AVLTree<Long> tree = new AVLTree<>();
+        for (long k : keys) tree.add(k);
+        long bytes = LongAVLTree.usedMemory() - before;
+        int hits = 0;
+        for (Long q : queries) if (tree.contains(q)) hits++; // warmup
+        long start = System.nanoTime();
+        for (Long q : queries) if (tree.contains(q)) hits++;
+        double nanos = (double) (System.nanoTime() - start) / queries.length;
+        return new double[] {(double) bytes / keys.length, nanos, hits};
+    }
+
+    /**
+     * Builds a LongBTree and measures its heap and lookup latency.
+     * @param minDegree Minimum degree of the tree
+     * @param keys Keys to add
+     * @param queries Keys to look up
+     * @return Bytes per key, nanoseconds per lookup and number of hits
+     */
+    static double[] measureLongBTree(int minDegree, long[] keys, long[] queries) {
+        long before = LongAVLTree.usedMemory();
+        LongBTree tree = new LongBTree(minDegree);
+        for (long k : keys) tree.add(k);
+        long bytes = LongAVLTree.usedMemory() - before;
+        int hits = 0;
+        for (long q : queries) if (tree.contains(q)) hits++; // warmup
+        long start = System.nanoTime();
+        for (long q : queries) if (tree.contains(q)) hits++;
+        double nanos = (double) (System.nanoTime() - start) / queries.length;
+        if (!tree.verify()) System.out.println("Invalid B-tree");
+        return new double[] {(double) bytes / keys.length, nanos, hits};
+    }
+
+    /**
+     * Lookup latency and heap comparison with AVLTree&lt;Long&gt; at 10^5, 10^6 and 10^7
+     * random keys, half of the lookups hitting. 10^7 keys in AVLTree&lt;Long&gt; need
+     * a heap of about 2 GB.
+     * @param args Optional minimum degree and largest number of keys
+     */
+    public static void main(String[] args) {
+        int minDegree = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_MIN_DEGREE;
+        int maxKeys = args.length > 1 ? Integer.parseInt(args[1]) : 10_000_000;
+        int lookups = 1_000_000;
+        System.out.println("Minimum degree " + minDegree + " (" + (2 * minDegree - 1) + " keys per node)");
+        for (int n = 100_000; n <= maxKeys; n *= 10) {
+            Random random = new Random(n);
+            long[] keys = random.longs(n).toArray();
+            Long[] queries = new Long[lookups];
+            long[] primitiveQueries = new long[lookups];
+            for (int i = 0; i < lookups; i++) {
+                primitiveQueries[i] = random.nextBoolean() ? keys[random.nextInt(n)] : random.nextLong();
+                queries[i] = primitiveQueries[i];
+            }
+            double[] btree = measureLongBTree(minDegree, keys, primitiveQueries);
+            double[] avl = measureAVLTree(keys, queries);
+            System.out.printf("%,11d keys: lookup AVLTree<Long> %5.0f ns, LongBTree %5.0f ns;"
+                    + " heap AVLTree<Long> %5.1f B/key, LongBTree %5.1f B/key; same hits %s%n",
+                n, avl[1], btree[1], avl[0], btree[0], avl[2] == btree[2]);
+        }
+    }
+}
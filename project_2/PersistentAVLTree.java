@@ -0,0 +1,372 @@
+package project_2;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Immutable AVL tree. add and remove never change a tree: they copy the
+ * O(log n) nodes on the path to the change and return a new tree sharing every
+ * other subtree with the old one. A tree is therefore its own snapshot, taken in
+ * O(1), and any number of threads can read or iterate it without locks while a
+ * writer derives new versions from it.
+ * @param <T> The type of elements stored in the tree.
+ */
+public final class PersistentAVLTree<T extends Comparable<? super T>> implements Iterable<T> {
+
+    /**
+     * Immutable node, holding the height and size of its subtree.
+     * @param <T> Type of the element.
+     */
+    static final class Entry<T> {
+
+        final T element;
+        final Entry<T> left, right;
+        final int height;
+        final int size;
+
+        /**
+         * Constructs a node above two subtrees.
+         * @param x Element of the node
+         * @param left Left child
+         * @param right Right child
+         */
+        Entry(T x, Entry<T> left, Entry<T> right) {
+            this.element = x;
+            this.left = left;
+            this.right = right;
+            this.height = 1 + Math.max(height(left), height(right));
+            this.size = 1 + size(left) + size(right);
+        }
+    }
+
+    private static final PersistentAVLTree<?> EMPTY = new PersistentAVLTree<>(null);
+
+    private final Entry<T> root;
+
+    /**
+     * Wraps a root.
+     * @param root Root of the tree
+     */
+    private PersistentAVLTree(Entry<T> root) {
+        this.root = root;
+    }
+
+    /**
+     * Returns the empty tree.
+     * @param <T> Type of the elements
+     * @return The empty tree
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends Comparable<? super T>> PersistentAVLTree<T> empty() {
+        return (PersistentAVLTree<T>) EMPTY;
+    }
+
+    /**
+     * Gets the height of a subtree.
+     * @param node Root of the subtree
+     * @return Height of the subtree, -1 for null
+     */
+    private static int height(Entry<?> node) {
+        return (node == null) ? -1 : node.height;
+    }
+
+    /**
+     * Gets the number of nodes in a subtree.
+     * @param node Root of the subtree
+     * @return Size of the subtree, 0 for null
+     */
+    private static int size(Entry<?> node) {
+        return (node == null) ? 0 : node.size;
+    }
+
+    /**
+     * Returns the number of elements.
+     * @return Number of elements in the tree
+     */
+    public int size() {
+        return size(root);
+    }
+
+    /**
+     * Checks if the tree contains an element.
+     * @param x Element to check
+     * @return True if the tree contains the element
+     */
+    public boolean contains(T x) {
+        Entry<T> t = root;
+        while (t != null) {
+            int cmp = x.compareTo(t.element);
+            if (cmp < 0) {
+                t = t.left;
+            } else if (cmp > 0) {
+                t = t.right;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns a tree with an element added.
+     * @param x Element to add
+     * @return The new tree, or this tree if the element is already present
+     */
+    public PersistentAVLTree<T> add(T x) {
+        Entry<T> newRoot = add(root, x);
+        return newRoot == root ? this : new PersistentAVLTree<>(newRoot);
+    }
+
+    /**
+     * Returns a tree with an element removed.
+     * @param x Element to remove
+     * @return The new tree, or this tree if the element is not present
+     */
+    public PersistentAVLTree<T> remove(T x) {
+        Entry<T> newRoot = remove(root, x);
+        return newRoot == root ? this : new PersistentAVLTree<>(newRoot);
+    }
+
+    /**
+     * Adds an element to a subtree by copying the path to it.
+     * @param node Root of the subtree
+     * @param x Element to add
+     * @return Root of the new subtree, or node itself if x is already present
+     */
+    private static <T extends Comparable<? super T>> Entry<T> add(Entry<T> node, T x) {
+        if (node == null) return new Entry<>(x, null, null);
+        int cmp = x.compareTo(node.element);
+        if (cmp < 0) {
+            Entry<T> left = add(node.left, x);
+            return left == node.left ? node : balance(node.element, left, node.right);
+        } else if (cmp > 0) {
+            Entry<T> right = add(node.right, x);
+            return right == node.right ? node : balance(node.element, node.left, right);
+        }
+        return node;
+    }
+
+    /**
+     * Removes an element from a subtree by copying the path to it.
+     * @param node Root of the subtree
+     * @param x Element to remove
+     * @return Root of the new subtree, or node itself if x is not present
+     */
+    private static <T extends Comparable<? super T>> Entry<T> remove(Entry<T> node, T x) {
+        if (node == null) return null;
+        int cmp = x.compareTo(node.element);
+        if (cmp < 0) {
+            Entry<T> left = remove(node.left, x);
+            return left == node.left ? node : balance(node.element, left, node.right);
+        } else if (cmp > 0) {
+            Entry<T> right = remove(node.right, x);
+            return right == node.right ? node : balance(node.element, node.left, right);
+        }
+        if (node.left == null) return node.right;
+        if (node.right == null) return node.left;
+        Entry<T> successor = node.right;
+        while (successor.left != null) successor = successor.left;
+        return balance(successor.element, node.left, removeMin(node.right));
+    }
+
+    /**
+     * Removes the smallest element of a subtree.
+     * @param node Root of the subtree, not null
+     * @return Root of the new subtree
+     */
+    private static <T> Entry<T> removeMin(Entry<T> node) {
+        if (node.left == null) return node.right;
+        return balance(node.element, removeMin(node.left), node.right);
+    }
+
+    /**
+     * Creates a node above two subtrees whose heights differ by at most 2,
+     * rotating if needed so that the result is balanced.
+     * @param x Element of the node
+     * @param left Left subtree
+     * @param right Right subtree
+     * @return Root of the balanced subtree
+     */
+    private static <T> Entry<T> balance(T x, Entry<T> left, Entry<T> right) {
+        int balance = height(left) - height(right);
+        if (balance > 1) {
+            if (height(left.left) >= height(left.right)) {
+                return new Entry<>(left.element, left.left, new Entry<>(x, left.right, right));
+            }
+            Entry<T> lr = left.right;
+            return new Entry<>(lr.element, new Entry<>(left.element, left.left, lr.left),
+                new Entry<>(x, lr.right, right));
+        }
+        if (balance < -1) {
+            if (height(right.right) >= height(right.left)) {
+                return new Entry<>(right.element, new Entry<>(x, left, right.left), right.right);
+            }
+            Entry<T> rl = right.left;
+            return new Entry<>(rl.element, new Entry<>(x, left, rl.left),
+                new Entry<>(right.element, rl.right, right.right));
+        }
+        return new Entry<>(x, left, right);
+    }
+
+    /**
+     * In-order iterator with an explicit stack holding at most one path of the tree.
+     * The tree is immutable, so iteration needs no lock and never sees later updates.
+     */
+    private class InOrderIterator implements Iterator<T> {
+
+        private final ArrayDeque<Entry<T>> path = new ArrayDeque<>();
+
+        /**
+         * Creates an iterator positioned on the smallest element.
+         */
+        InOrderIterator() {
+            pushLeft(root);
+        }
+
+        /**
+         * Pushes a node and the left spine below it.
+         * @param t Node to start from, or null
+         */
+        private void pushLeft(Entry<T> t) {
+            for (; t != null; t = t.left) path.push(t);
+        }
+
+        /**
+         * Checks if there are elements left.
+         * @return true if next() returns an element
+         */
+        @Override
+        public boolean hasNext() {
+            return !path.isEmpty();
+        }
+
+        /**
+         * Returns the next element and pushes the left spine of its right subtree.
+         * @return the next element in sorted order
+         */
+        @Override
+        public T next() {
+            if (path.isEmpty()) throw new NoSuchElementException();
+            Entry<T> node = path.pop();
+            pushLeft(node.right);
+            return node.element;
+        }
+    }
+
+    /**
+     * Iterates elements in sorted order with an explicit stack of O(height) entries.
+     * @return Iterator over the elements
+     */
+    public Iterator<T> iterator() {
+        return new InOrderIterator();
+    }
+
+    /**
+     * Verifies that the tree is a valid AVL tree with elements in order.
+     * Heights and sizes are computed by the constructor of Entry, so only the
+     * order and the balance factors need checking.
+     * @return True if valid, false otherwise
+     */
+    boolean verify() {
+        return verify(root, null, null);
+    }
+
+    /**
+     * Verifies a subtree recursively.
+     * @param node Root of the subtree
+     * @param min Lower bound (exclusive) of its elements, or null
+     * @param max Upper bound (exclusive) of its elements, or null
+     * @return True if the subtree is valid
+     */
+    private boolean verify(Entry<T> node, T min, T max) {
+        if (node == null) return true;
+        if ((min != null && node.element.compareTo(min) <= 0)
+            || (max != null && node.element.compareTo(max) >= 0)
+            || Math.abs(height(node.left) - height(node.right)) > 1) {
+            return false;
+        }
+        return verify(node.left, min, node.element) && verify(node.right, node.element, max);
+    }
+
+    /** Latest version published by the writer of main, read by its readers. */
+    private static volatile PersistentAVLTree<Long> current = empty();
+
+    /**
+     * Snapshot demo and stress test. A writer replays the operations of a driver input
+     * file and publishes every new version, while reader threads repeatedly take a
+     * snapshot and iterate it, checking that it is sorted and complete. Reports the
+     * memory allocated per update and the snapshots read.
+     * @param args Input file (bst-t02.txt by default), number of readers and of passes over the file
+     * @throws FileNotFoundException If the input file is not found
+     * @throws InterruptedException If interrupted while waiting for the threads
+     */
+    public static void main(String[] args) throws FileNotFoundException, InterruptedException {
+        String file = args.length > 0 ? args[0] : "project_2/p2-testcases/bst-t02.txt";
+        int readers = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        int passes = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        LongAVLTree.Commands c = new LongAVLTree.Commands(new File(file));
+
+        AtomicLong snapshots = new AtomicLong(), errors = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+        AtomicBoolean done = new AtomicBoolean();
+        for (int i = 0; i < readers; i++) {
+            Thread reader = new Thread(() -> {
+                while (!done.get()) {
+                    PersistentAVLTree<Long> snapshot = current;
+                    int count = 0;
+                    long previous = Long.MIN_VALUE;
+                    for (long x : snapshot) {
+                        if (count++ > 0 && x <= previous) errors.incrementAndGet();
+                        previous = x;
+                    }
+                    if (count != snapshot.size()) errors.incrementAndGet();
+                    snapshots.incrementAndGet();
+                }
+            });
+            threads.add(reader);
+            reader.start();
+        }
+
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocated = bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+        long updates = 0, result = 0;
+        long start = System.nanoTime();
+        for (int pass = 0; pass < passes; pass++) {
+            PersistentAVLTree<Long> tree = empty();
+            result = 0;
+            for (int i = 0; i < c.count; i++) {
+                long x = c.operand[i];
+                PersistentAVLTree<Long> next = switch (c.op[i]) {
+                    case LongAVLTree.Commands.ADD -> tree.add(x);
+                    case LongAVLTree.Commands.REMOVE -> tree.remove(x);
+                    default -> tree;
+                };
+                boolean success = c.op[i] == LongAVLTree.Commands.CONTAINS ? tree.contains(x) : next != tree;
+                if (success) result = (result + 1) % 999983;
+                if (next != tree) {
+                    updates++;
+                    current = next;
+                    tree = next;
+                }
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        allocated = bean.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocated;
+        done.set(true);
+        for (Thread reader : threads) reader.join();
+
+        System.out.println(result);
+        System.out.println("Is valid AVL tree? " + current.verify());
+        System.out.printf("Updates: %d, %.0f ns/update, %.0f bytes allocated/update%n",
+            updates, (double) elapsed / updates, (double) allocated / updates);
+        System.out.println("Snapshots iterated: " + snapshots.get() + ", errors: " + errors.get());
+    }
+}
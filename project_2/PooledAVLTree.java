@@ -0,0 +1,482 @@
+package project_2;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * AVL tree of long keys whose nodes live in parallel primitive arrays instead of
+ * separate objects. Node i has its key in key[i], its children in left[i] and
+ * right[i] and its height in height[i]. Index 0 is the null node, with height -1.
+ * The arrays are split in chunks of CHUNK slots, so growing allocates one new
+ * chunk per array and never copies the nodes. Removed slots are kept on a free
+ * list threaded through left[] and reused by later adds.
+ * The GC traces one array per chunk and array instead of one object per node.
+ */
+public class PooledAVLTree {
+
+    static final int SHIFT = 12;
+    static final int CHUNK = 1 << SHIFT;
+    static final int MASK = CHUNK - 1;
+    static final int NIL = 0;
+
+    long[][] key = new long[0][];
+    int[][] left = new int[0][];
+    int[][] right = new int[0][];
+    byte[][] height = new byte[0][];
+
+    int root = NIL;
+    int size;
+    private int used = 1;   // slots handed out so far; slot 0 is NIL
+    private int free = NIL; // head of the free list
+    private int[] path = new int[64];
+    private int depth;
+
+    /**
+     * Constructs an empty tree.
+     */
+    public PooledAVLTree() {
+        grow();
+        height[0][NIL] = -1;
+    }
+
+    /**
+     * Returns the number of keys.
+     * @return Number of keys in the tree
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Adds one chunk to every array.
+     */
+    private void grow() {
+        int chunks = key.length;
+        key = Arrays.copyOf(key, chunks + 1);
+        left = Arrays.copyOf(left, chunks + 1);
+        right = Arrays.copyOf(right, chunks + 1);
+        height = Arrays.copyOf(height, chunks + 1);
+        key[chunks] = new long[CHUNK];
+        left[chunks] = new int[CHUNK];
+        right[chunks] = new int[CHUNK];
+        height[chunks] = new byte[CHUNK];
+    }
+
+    /**
+     * Gets the key of a node.
+     * @param n Index of the node
+     * @return Key of the node
+     */
+    long key(int n) {
+        return key[n >>> SHIFT][n & MASK];
+    }
+
+    /**
+     * Gets the left child of a node.
+     * @param n Index of the node
+     * @return Index of the left child, NIL if none
+     */
+    int left(int n) {
+        return left[n >>> SHIFT][n & MASK];
+    }
+
+    /**
+     * Gets the right child of a node.
+     * @param n Index of the node
+     * @return Index of the right child, NIL if none
+     */
+    int right(int n) {
+        return right[n >>> SHIFT][n & MASK];
+    }
+
+    /**
+     * Gets the height of a node.
+     * @param n Index of the node
+     * @return Height of the node, -1 for NIL
+     */
+    int height(int n) {
+        return height[n >>> SHIFT][n & MASK];
+    }
+
+    /**
+     * Sets the left child of a node.
+     * @param n Index of the node
+     * @param child Index of the new left child, NIL for none
+     */
+    void setLeft(int n, int child) {
+        left[n >>> SHIFT][n & MASK] = child;
+    }
+
+    /**
+     * Sets the right child of a node.
+     * @param n Index of the node
+     * @param child Index of the new right child, NIL for none
+     */
+    void setRight(int n, int child) {
+        right[n >>> SHIFT][n & MASK] = child;
+    }
+
+    /**
+     * Takes a slot from the free list, or a new one, and makes it a leaf.
+     * @param x Key of the new node
+     * @return Index of the new node
+     */
+    private int allocate(long x) {
+        int n;
+        if (free != NIL) {
+            n = free;
+            free = left(n);
+        } else {
+            if (used == key.length * CHUNK) grow();
+            n = used++;
+        }
+        key[n >>> SHIFT][n & MASK] = x;
+        setLeft(n, NIL);
+        setRight(n, NIL);
+        height[n >>> SHIFT][n & MASK] = 0;
+        return n;
+    }
+
+    /**
+     * Puts a slot on the free list.
+     * @param n Index of the removed node
+     */
+    private void release(int n) {
+        setLeft(n, free);
+        free = n;
+    }
+
+    /**
+     * Checks if the tree contains a key.
+     * @param x Key to check
+     * @return True if the key is in the tree
+     */
+    public boolean contains(long x) {
+        int t = root;
+        while (t != NIL) {
+            long k = key(t);
+            if (x < k) {
+                t = left(t);
+            } else if (x > k) {
+                t = right(t);
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Pushes a node on the path.
+     * @param n Index of the node
+     */
+    private void push(int n) {
+        if (depth == path.length) path = Arrays.copyOf(path, 2 * depth);
+        path[depth++] = n;
+    }
+
+    /**
+     * Finds a key, leaving the ancestors of the node found (or of the
+     * position where the key would be inserted) on the path.
+     * @param x Key to find
+     * @return Index of the node holding the key, or NIL if not found
+     */
+    private int find(long x) {
+        depth = 0;
+        int t = root;
+        while (t != NIL) {
+            long k = key(t);
+            if (x < k) {
+                push(t);
+                t = left(t);
+            } else if (x > k) {
+                push(t);
+                t = right(t);
+            } else {
+                return t;
+            }
+        }
+        return NIL;
+    }
+
+    /**
+     * Adds a key, balancing the tree if necessary.
+     * @param x Key to add
+     * @return True if the key was added, false if it already exists
+     */
+    public boolean add(long x) {
+        if (find(x) != NIL) return false;
+        int n = allocate(x);
+        if (depth == 0) {
+            root = n;
+        } else {
+            int parent = path[depth - 1];
+            if (x < key(parent)) {
+                setLeft(parent, n);
+            } else {
+                setRight(parent, n);
+            }
+        }
+        size++;
+        balanceTree();
+        return true;
+    }
+
+    /**
+     * Removes a key and rebalances the tree.
+     * @param x Key to remove
+     * @return True if the key was removed, false if it was not found
+     */
+    public boolean remove(long x) {
+        int n = find(x);
+        if (n == NIL) return false;
+        if (left(n) != NIL && right(n) != NIL) {
+            push(n);
+            int successor = right(n);
+            while (left(successor) != NIL) {
+                push(successor);
+                successor = left(successor);
+            }
+            key[n >>> SHIFT][n & MASK] = key(successor);
+            n = successor;
+        }
+        replace(n, left(n) != NIL ? left(n) : right(n));
+        release(n);
+        size--;
+        balanceTree();
+        return true;
+    }
+
+    /**
+     * Replaces a child of the node on top of the path, or the root if the path is empty.
+     * @param n The child to replace
+     * @param child The new child
+     */
+    private void replace(int n, int child) {
+        if (depth == 0) {
+            root = child;
+        } else if (left(path[depth - 1]) == n) {
+            setLeft(path[depth - 1], child);
+        } else {
+            setRight(path[depth - 1], child);
+        }
+    }
+
+    /**
+     * Balances the tree from the top of the path up to the root.
+     */
+    private void balanceTree() {
+        while (depth > 0) {
+            int n = path[--depth];
+            updateHeight(n);
+            int balance = getBalance(n);
+            int top = n;
+
+            if (balance > 1) {
+                if (getBalance(left(n)) < 0) setLeft(n, leftRotate(left(n)));
+                top = rightRotate(n);
+            } else if (balance < -1) {
+                if (getBalance(right(n)) > 0) setRight(n, rightRotate(right(n)));
+                top = leftRotate(n);
+            }
+
+            if (top != n) replace(n, top);
+        }
+    }
+
+    /**
+     * Updates the height of a node.
+     * @param n Node to update
+     */
+    private void updateHeight(int n) {
+        height[n >>> SHIFT][n & MASK] = (byte) (1 + Math.max(height(left(n)), height(right(n))));
+    }
+
+    /**
+     * Calculates the balance factor of a node.
+     * @param n Node to check
+     * @return Balance factor of the node
+     */
+    private int getBalance(int n) {
+        return height(left(n)) - height(right(n));
+    }
+
+    /**
+     * Performs a right rotation on the subtree.
+     * @param n Root of the subtree
+     * @return New root after rotation
+     */
+    private int rightRotate(int n) {
+        int newRoot = left(n);
+        setLeft(n, right(newRoot));
+        setRight(newRoot, n);
+        updateHeight(n);
+        updateHeight(newRoot);
+        return newRoot;
+    }
+
+    /**
+     * Performs a left rotation on the subtree.
+     * @param n Root of the subtree
+     * @return New root after rotation
+     */
+    private int leftRotate(int n) {
+        int newRoot = right(n);
+        setRight(n, left(newRoot));
+        setLeft(newRoot, n);
+        updateHeight(n);
+        updateHeight(newRoot);
+        return newRoot;
+    }
+
+    /**
+     * Verifies that the tree is a valid AVL tree: keys in order, stored heights
+     * correct, balance factors within [-1, 1], and every slot either in the tree
+     * or on the free list.
+     * @return True if valid, false otherwise
+     */
+    boolean verify() {
+        int freeSlots = 0;
+        for (int n = free; n != NIL; n = left(n)) freeSlots++;
+        return size + freeSlots == used - 1
+            && verify(root, Long.MIN_VALUE, false, Long.MAX_VALUE, false) != -2;
+    }
+
+    /**
+     * Verifies a subtree recursively.
+     * @param n Root of the subtree
+     * @param min Lower bound (exclusive) of its keys, if hasMin
+     * @param hasMin True if the subtree has a lower bound
+     * @param max Upper bound (exclusive) of its keys, if hasMax
+     * @param hasMax True if the subtree has an upper bound
+     * @return Height of the subtree, or -2 if it is invalid
+     */
+    private int verify(int n, long min, boolean hasMin, long max, boolean hasMax) {
+        if (n == NIL) return -1;
+        long k = key(n);
+        if ((hasMin && k <= min) || (hasMax && k >= max)) return -2;
+        int l = verify(left(n), min, hasMin, k, true);
+        if (l == -2) return -2;
+        int r = verify(right(n), k, true, max, hasMax);
+        if (r == -2) return -2;
+        if (Math.abs(l - r) > 1 || height(n) != 1 + Math.max(l, r)) return -2;
+        return height(n);
+    }
+
+    /**
+     * Runs the operations on a PooledAVLTree.
+     * @param c The operations
+     * @return The driver result: number of successful operations modulo 999983
+     */
+    static long run(LongAVLTree.Commands c) {
+        PooledAVLTree tree = new PooledAVLTree();
+        long result = 0;
+        for (int i = 0; i < c.count; i++) {
+            boolean done = switch (c.op[i]) {
+                case LongAVLTree.Commands.ADD -> tree.add(c.operand[i]);
+                case LongAVLTree.Commands.REMOVE -> tree.remove(c.operand[i]);
+                default -> tree.contains(c.operand[i]);
+            };
+            if (done) result = (result + 1) % 999983;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the total time spent in garbage collection so far.
+     * @return GC time in milliseconds
+     */
+    static long gcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+
+    /**
+     * Times full collections while a tree of random keys is live.
+     * @param tree The tree, kept reachable during the collections
+     * @return Average time of one full collection in milliseconds
+     */
+    static double fullGcMillis(Object tree) {
+        long before = gcMillis();
+        for (int i = 0; i < 5; i++) System.gc();
+        double millis = (gcMillis() - before) / 5.0;
+        Reference.reachabilityFence(tree);
+        return millis;
+    }
+
+    /**
+     * Benchmarks PooledAVLTree against AVLTree&lt;Long&gt; on the driver input files,
+     * then compares full GC pauses with a large tree live.
+     * @param args Number of keys for the GC comparison, then the input files
+     * @throws FileNotFoundException If an input file is not found
+     */
+    public static void main(String[] args) throws FileNotFoundException {
+        int keys = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        String[] files = args.length > 1 ? Arrays.copyOfRange(args, 1, args.length)
+            : new File("project_2/p2-testcases").list();
+        if (args.length <= 1) {
+            Arrays.sort(files);
+            for (int i = 0; i < files.length; i++) files[i] = "project_2/p2-testcases/" + files[i];
+        }
+
+        for (String file : files) {
+            LongAVLTree.Commands c = new LongAVLTree.Commands(new File(file));
+            if (c.count == 0) {
+                System.out.printf("%-40s no operations%n", file);
+                continue;
+            }
+            int rounds = Math.max(5, 2_000_000 / c.count);
+            long generic = 0, pooled = 0, r1 = 0, r2 = 0;
+            for (int round = 0; round < 2 * rounds; round++) {
+                long start = System.nanoTime();
+                r1 = LongAVLTree.runGeneric(c);
+                long mid = System.nanoTime();
+                r2 = run(c);
+                long end = System.nanoTime();
+                if (round >= rounds) { // first half is warmup
+                    generic += mid - start;
+                    pooled += end - mid;
+                }
+            }
+            System.out.printf("%-40s results %d %d  AVLTree<Long>: %6.1f Mops/s  PooledAVLTree: %6.1f Mops/s%n",
+                file, r1, r2, 1e3 * c.count * rounds / generic, 1e3 * c.count * rounds / pooled);
+        }
+
+        long[] values = new Random(1).longs(keys).toArray();
+        AVLTree<Long> boxed = new AVLTree<>();
+        for (long v : values) boxed.add(v);
+        double boxedGc = fullGcMillis(boxed);
+        Random random = new Random(2);
+        long start = System.nanoTime();
+        int hits = 0;
+        for (int i = 0; i < keys; i++) {
+            if (boxed.contains(values[random.nextInt(keys)])) hits++;
+        }
+        double boxedLookup = (double) (System.nanoTime() - start) / keys;
+        boxed = null;
+
+        PooledAVLTree pooled = new PooledAVLTree();
+        for (long v : values) pooled.add(v);
+        double pooledGc = fullGcMillis(pooled);
+        random = new Random(2);
+        start = System.nanoTime();
+        for (int i = 0; i < keys; i++) {
+            if (pooled.contains(values[random.nextInt(keys)])) hits++;
+        }
+        double pooledLookup = (double) (System.nanoTime() - start) / keys;
+
+        System.out.printf("%d keys live: full GC AVLTree<Long> %.1f ms, PooledAVLTree %.1f ms%n",
+            keys, boxedGc, pooledGc);
+        System.out.printf("Random lookups: AVLTree<Long> %.0f ns/op, PooledAVLTree %.0f ns/op (%d)%n",
+            boxedLookup, pooledLookup, hits);
+        System.out.println("Is valid AVL tree? " + pooled.verify());
+    }
+}